@@ -0,0 +1,132 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Single-pass parser for the argstring of a Rundeck execution ("-name value -other 'quoted value'"), as generated by
+ * Rundeck :
+ * <ul>
+ * <li>an option is an unquoted token starting with "-" (but not a negative number such as "-1" or "-.5"), its value is
+ * everything up to the next option (so unquoted values may contain spaces, and hyphens)</li>
+ * <li>a token starting with a double or single quote is quoted up to the matching quote (so it may contain spaces, or
+ * " -"). In double quotes, a backslash escapes a backslash, or a double quote unless this quote ends the value
+ * (followed by the end of the argstring, or by whitespace and an option) : so "C:\dir\" is read as a path ending with
+ * a backslash. Other quotes and backslashes are kept as-is</li>
+ * <li>an option without value (followed by another option, or at the end) is ignored, but an empty quoted value ("")
+ * is kept</li>
+ * </ul>
+ * Tokens before the first option are ignored.
+ */
+public class ArgStringTokenizer {
+
+    private ArgStringTokenizer() {
+        // utility class
+    }
+
+    /**
+     * @param argString argstring of a Rundeck execution - may be null
+     * @return the value of each option, by name (in the order of the argstring, the last value wins if an option is
+     *         repeated)
+     */
+    public static Map<String, String> parse(String argString) {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        if (argString == null) {
+            return options;
+        }
+        int length = argString.length();
+        StringBuilder value = new StringBuilder();
+        String name = null;
+        boolean hasValue = false;
+        int i = 0;
+        while (true) {
+            // whitespace between tokens : part of the value if another value token follows
+            int whitespaceStart = i;
+            while (i < length && Character.isWhitespace(argString.charAt(i))) {
+                i++;
+            }
+            if (i >= length || isOption(argString, i)) {
+                if (name != null && hasValue) {
+                    options.put(name, value.toString());
+                }
+                if (i >= length) {
+                    return options;
+                }
+                // option name : up to the next whitespace
+                int nameStart = ++i;
+                while (i < length && !Character.isWhitespace(argString.charAt(i))) {
+                    i++;
+                }
+                name = argString.substring(nameStart, i);
+                value.setLength(0);
+                hasValue = false;
+                continue;
+            }
+
+            // value token
+            if (hasValue) {
+                value.append(argString, whitespaceStart, i);
+            }
+            hasValue = true;
+            char quote = argString.charAt(i);
+            if (quote == '"' || quote == '\'') {
+                i = readQuoted(argString, i + 1, quote, value);
+            }
+            while (i < length && !Character.isWhitespace(argString.charAt(i))) {
+                value.append(argString.charAt(i++));
+            }
+        }
+    }
+
+    /**
+     * @return true if the token starting at the given index is an option name
+     */
+    private static boolean isOption(String argString, int i) {
+        if (argString.charAt(i) != '-' || i + 1 >= argString.length()) {
+            return false;
+        }
+        char next = argString.charAt(i + 1);
+        return !Character.isWhitespace(next) && !Character.isDigit(next) && next != '.';
+    }
+
+    /**
+     * @return true if the quote at the given index ends a value : it is followed by the end of the argstring, or by
+     *         whitespace and an option
+     */
+    private static boolean isClosingQuote(String argString, int i) {
+        int length = argString.length();
+        int next = i + 1;
+        if (next < length && !Character.isWhitespace(argString.charAt(next))) {
+            return false;
+        }
+        while (next < length && Character.isWhitespace(argString.charAt(next))) {
+            next++;
+        }
+        return next >= length || isOption(argString, next);
+    }
+
+    /**
+     * Read a quoted string, up to the matching quote (or the end of the argstring)
+     *
+     * @param start index of the first character after the opening quote
+     * @param value to which the unquoted content is appended
+     * @return the index of the first character after the closing quote
+     */
+    private static int readQuoted(String argString, int start, char quote, StringBuilder value) {
+        int length = argString.length();
+        int i = start;
+        while (i < length) {
+            char c = argString.charAt(i++);
+            if (c == quote) {
+                return i;
+            }
+            if (c == '\\' && quote == '"' && i < length
+                && (argString.charAt(i) == '\\' || (argString.charAt(i) == '"' && !isClosingQuote(argString, i)))) {
+                c = argString.charAt(i++);
+            }
+            value.append(c);
+        }
+        return i;
+    }
+
+}
@@ -0,0 +1,648 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.XmlFile;
+import hudson.model.AbstractProject;
+import hudson.model.Item;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.Run.Artifact;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Index of the artifacts of the builds of a project, so that the {@link OptionProvider} can find the builds of an
+ * artifact without listing the artifacts directory of every build. The index maps each build number to the paths of
+ * its artifacts, and each artifact file name to the numbers of the builds which produced it.<br>
+ * It is built from the build history the first time it is used, then maintained incrementally as builds complete or are
+ * deleted (see {@link RunListenerImpl}), and persisted in the project directory so that it survives restarts. It is
+ * kept in memory until its project is deleted (see {@link ItemListenerImpl}).
+ */
+public class ArtifactIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(ArtifactIndex.class.getName());
+
+    private static final String FILE_NAME = "rundeck-artifacts.xml";
+
+    private static final Map<AbstractProject<?, ?>, ArtifactIndex> INDEXES = new HashMap<AbstractProject<?, ?>, ArtifactIndex>();
+
+    private final transient AbstractProject<?, ?> project;
+
+    /** Artifacts of each build, by build number */
+    private final TreeMap<Integer, BuildArtifacts> builds = new TreeMap<Integer, BuildArtifacts>();
+
+    /** Date of the last change of the index, in milliseconds */
+    private long lastModified;
+
+    /** Numbers of the builds which produced an artifact, by artifact file name (rebuilt on load) */
+    private transient Map<String, TreeSet<Integer>> buildsByFileName;
+
+    /** Serializes the loads of this index, without locking the index itself */
+    private final transient Object loadLock = new Object();
+
+    private transient volatile boolean loaded;
+
+    /**
+     * Builds completed (or deleted, with a null value) while the index is loaded, applied once it is loaded - null once
+     * loaded
+     */
+    private transient Map<Integer, Run<?, ?>> pendingChanges = new LinkedHashMap<Integer, Run<?, ?>>();
+
+    /**
+     * @param project which artifacts are indexed
+     * @return the index of the given project, loaded (or built) on first use
+     */
+    public static ArtifactIndex get(AbstractProject<?, ?> project) {
+        ArtifactIndex index = getInstance(project);
+        // outside of the global lock : only the users of this index wait for it to be loaded
+        index.ensureLoaded();
+        return index;
+    }
+
+    /**
+     * @param project which artifacts are indexed
+     * @return the index of the given project if it is loaded or saved, or null if it has never been built (building it
+     *         means listing the artifacts of every build, see {@link HistoryScanner}) or is being built
+     */
+    public static ArtifactIndex getIfAvailable(AbstractProject<?, ?> project) {
+        ArtifactIndex index;
+        synchronized (INDEXES) {
+            index = INDEXES.get(project);
+        }
+        if (index != null && index.loaded) {
+            return index;
+        }
+        if (!new File(project.getRootDir(), FILE_NAME).exists()) {
+            return null;
+        }
+        return get(project);
+    }
+
+    /**
+     * @return the indexes currently loaded
+     */
+    static List<ArtifactIndex> getLoadedIndexes() {
+        List<ArtifactIndex> result = new ArrayList<ArtifactIndex>();
+        synchronized (INDEXES) {
+            for (ArtifactIndex index : INDEXES.values()) {
+                if (index.loaded) {
+                    result.add(index);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param project which artifacts are indexed
+     * @return the (maybe not loaded yet) index of the given project
+     */
+    static ArtifactIndex getInstance(AbstractProject<?, ?> project) {
+        synchronized (INDEXES) {
+            ArtifactIndex index = INDEXES.get(project);
+            if (index == null) {
+                index = new ArtifactIndex(project);
+                INDEXES.put(project, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Find the artifact of the given build matching the given file name or matcher, without using (nor building) the
+     * index : the artifacts directory of the build is listed
+     *
+     * @param build - completed
+     * @param artifactName exact file name of the artifact - may be null
+     * @param artifactMatcher to match against the artifact file name (see {@link PatternCache}) - may be null
+     * @return the first matching artifact, or null if not found
+     */
+    public static Entry scan(Run<?, ?> build, String artifactName, ArtifactMatcher artifactMatcher) {
+        BuildArtifacts artifacts = BuildArtifacts.read(build);
+        return artifacts != null ? artifacts.find(artifactName, artifactMatcher) : null;
+    }
+
+    /**
+     * List the artifacts of the given build, without using (nor building) the index
+     *
+     * @param build - completed
+     * @return the artifacts of the build
+     */
+    public static List<Entry> scan(Run<?, ?> build) {
+        return getEntries(BuildArtifacts.read(build));
+    }
+
+    private ArtifactIndex(AbstractProject<?, ?> project) {
+        this.project = project;
+    }
+
+    /**
+     * Index the artifacts of the given (completed) build, replacing its previous entry if any
+     *
+     * @param build of our project
+     */
+    public void add(Run<?, ?> build) {
+        synchronized (this) {
+            if (pendingChanges != null) {
+                pendingChanges.remove(build.getNumber());
+                pendingChanges.put(build.getNumber(), build);
+                return;
+            }
+            put(build);
+        }
+        save();
+    }
+
+    /**
+     * Remove the given build from the index
+     *
+     * @param number of the deleted build
+     */
+    public void remove(int number) {
+        synchronized (this) {
+            if (pendingChanges != null) {
+                pendingChanges.remove(number);
+                pendingChanges.put(number, null);
+                return;
+            }
+            if (!removeEntry(number)) {
+                return;
+            }
+        }
+        save();
+    }
+
+    /**
+     * Find the builds with an artifact matching the given file name or matcher, most recent first
+     *
+     * @param artifactName exact file name of the artifact - may be null
+     * @param artifactMatcher to match against the artifact file name (see {@link PatternCache}) - may be null
+     * @param limit maximum number of results, or null for all
+     * @return the first matching artifact of each build
+     */
+    public List<Entry> find(String artifactName, ArtifactMatcher artifactMatcher, Integer limit) {
+        return find(artifactName, artifactMatcher, null, limit);
+    }
+
+    /**
+     * Find the builds older than the given one with an artifact matching the given file name or matcher, most recent
+     * first : used to read the results page by page
+     *
+     * @param artifactName exact file name of the artifact - may be null
+     * @param artifactMatcher to match against the artifact file name (see {@link PatternCache}) - may be null
+     * @param before only the builds with a lower number are returned, or null for all the builds
+     * @param limit maximum number of results, or null for all
+     * @return the first matching artifact of each build
+     */
+    public List<Entry> find(String artifactName, ArtifactMatcher artifactMatcher, Integer before, Integer limit) {
+        List<Entry> result = new ArrayList<Entry>();
+        List<Integer> unavailable = new ArrayList<Integer>();
+        synchronized (this) {
+            // only the builds which produced this artifact, or all of them for a matcher
+            NavigableSet<Integer> numbers;
+            if (artifactMatcher == null) {
+                TreeSet<Integer> withArtifact = buildsByFileName.get(artifactName);
+                numbers = withArtifact != null ? withArtifact : new TreeSet<Integer>();
+            } else {
+                numbers = builds.navigableKeySet();
+            }
+            if (before != null) {
+                numbers = numbers.headSet(before, false);
+            }
+
+            for (Integer number : numbers.descendingSet()) {
+                if (limit != null && result.size() >= limit) {
+                    break;
+                }
+                Entry entry = builds.get(number).find(artifactName, artifactMatcher);
+                if (entry == null) {
+                    continue;
+                }
+                if (isAvailable(entry)) {
+                    result.add(entry);
+                } else {
+                    unavailable.add(number);
+                }
+            }
+
+            // not while iterating over the numbers
+            for (Integer number : unavailable) {
+                removeEntry(number);
+            }
+        }
+        if (!unavailable.isEmpty()) {
+            save();
+        }
+        return result;
+    }
+
+    /**
+     * Remove the builds which artifacts have been deleted since they were indexed : a {@link hudson.tasks.LogRotator}
+     * deletes them without deleting the builds, nor notifying the {@link RunListener}s. Only the artifacts directory of
+     * each build is checked (not each artifact), without locking the index. The removal changes the
+     * {@link #getLastModified() last modification date} of the index.<br>
+     * Called periodically by the {@link ArtifactIndexSweeper}, as it checks the whole history.
+     */
+    public void removeDeletedArtifacts() {
+        List<BuildArtifacts> indexed;
+        synchronized (this) {
+            indexed = new ArrayList<BuildArtifacts>(builds.values());
+        }
+        List<BuildArtifacts> deleted = new ArrayList<BuildArtifacts>();
+        for (BuildArtifacts entry : indexed) {
+            if (!getArtifactsDir(entry.id).isDirectory()) {
+                deleted.add(entry);
+            }
+        }
+        if (deleted.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (BuildArtifacts entry : deleted) {
+                // unless indexed again meanwhile
+                if (builds.get(entry.number) == entry) {
+                    removeEntry(entry.number);
+                }
+            }
+        }
+        save();
+    }
+
+    /**
+     * Find the artifact of the given build matching the given file name or matcher
+     *
+     * @param number of the build
+     * @param artifactName exact file name of the artifact - may be null
+     * @param artifactMatcher to match against the artifact file name (see {@link PatternCache}) - may be null
+     * @return the first matching artifact, or null if not found
+     */
+    public synchronized Entry find(int number, String artifactName, ArtifactMatcher artifactMatcher) {
+        BuildArtifacts build = builds.get(number);
+        Entry entry = build != null ? build.find(artifactName, artifactMatcher) : null;
+        return entry != null && isAvailable(entry) ? entry : null;
+    }
+
+    /**
+     * @param number of the build
+     * @return the artifacts of the given build (empty if the build is not known)
+     */
+    public synchronized List<Entry> getArtifacts(int number) {
+        return getEntries(builds.get(number));
+    }
+
+    private static List<Entry> getEntries(BuildArtifacts build) {
+        List<Entry> result = new ArrayList<Entry>();
+        if (build != null) {
+            for (int i = 0; i < build.paths.length; i++) {
+                result.add(new Entry(build, i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the date of the last change of the index (a build indexed or removed), in milliseconds
+     */
+    public synchronized long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return the number of builds in the index
+     */
+    public synchronized int getSize() {
+        return builds.size();
+    }
+
+    /**
+     * Artifacts may be deleted without deleting their build (see {@link hudson.tasks.LogRotator}) : check that the
+     * artifact is still there, without listing the artifacts directory nor loading the build
+     *
+     * @return true if the build and its artifact still exist
+     */
+    private boolean isAvailable(Entry entry) {
+        return new File(getArtifactsDir(entry.buildId), entry.path).exists();
+    }
+
+    /**
+     * @param buildId id of a build of our project
+     * @return the artifacts directory of the build, like {@link Run#getArtifactsDir()} but without loading the build
+     */
+    private File getArtifactsDir(String buildId) {
+        return new File(new File(project.getBuildDir(), buildId), "archive");
+    }
+
+    private void put(Run<?, ?> build) {
+        removeEntry(build.getNumber());
+        lastModified = System.currentTimeMillis();
+        BuildArtifacts entry = BuildArtifacts.read(build);
+        if (entry == null) {
+            return;
+        }
+        builds.put(entry.number, entry);
+        addFileNames(entry);
+    }
+
+    private boolean removeEntry(int number) {
+        BuildArtifacts entry = builds.remove(number);
+        if (entry == null) {
+            return false;
+        }
+        lastModified = System.currentTimeMillis();
+        for (int i = 0; i < entry.paths.length; i++) {
+            TreeSet<Integer> numbers = buildsByFileName.get(entry.getFileName(i));
+            if (numbers != null) {
+                numbers.remove(number);
+                if (numbers.isEmpty()) {
+                    buildsByFileName.remove(entry.getFileName(i));
+                }
+            }
+        }
+        return true;
+    }
+
+    private void addFileNames(BuildArtifacts entry) {
+        for (int i = 0; i < entry.paths.length; i++) {
+            TreeSet<Integer> numbers = buildsByFileName.get(entry.getFileName(i));
+            if (numbers == null) {
+                numbers = new TreeSet<Integer>();
+                buildsByFileName.put(entry.getFileName(i), numbers);
+            }
+            numbers.add(entry.number);
+        }
+    }
+
+    private XmlFile getFile() {
+        return new XmlFile(new File(project.getRootDir(), FILE_NAME));
+    }
+
+    private void ensureLoaded() {
+        synchronized (loadLock) {
+            if (!loaded) {
+                load();
+            }
+        }
+    }
+
+    /**
+     * Load the index from the project directory, or build it from the build history if it has never been saved. The
+     * history is read without locking the index : the builds completed or deleted meanwhile are applied afterwards.
+     */
+    private void load() {
+        XmlFile file = getFile();
+        if (file.exists()) {
+            boolean changed = false;
+            synchronized (this) {
+                try {
+                    file.unmarshal(this);
+                    changed = setLoaded();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to load the artifact index of " + project.getFullName()
+                                              + ", rebuilding it", e);
+                    builds.clear();
+                }
+            }
+            if (loaded) {
+                if (changed) {
+                    save();
+                }
+                return;
+            }
+        }
+
+        List<BuildArtifacts> history = new ArrayList<BuildArtifacts>();
+        for (Run<?, ?> build : project.getBuilds()) {
+            if (!build.isBuilding()) {
+                BuildArtifacts entry = BuildArtifacts.read(build);
+                if (entry != null) {
+                    history.add(entry);
+                }
+            }
+        }
+        synchronized (this) {
+            builds.clear();
+            for (BuildArtifacts entry : history) {
+                builds.put(entry.number, entry);
+            }
+            lastModified = System.currentTimeMillis();
+            setLoaded();
+        }
+        save();
+    }
+
+    /**
+     * Index the file names, and apply the changes received while loading
+     *
+     * @return true if changes have been applied
+     */
+    private boolean setLoaded() {
+        buildsByFileName = new HashMap<String, TreeSet<Integer>>();
+        for (BuildArtifacts entry : builds.values()) {
+            addFileNames(entry);
+        }
+        Map<Integer, Run<?, ?>> changes = pendingChanges;
+        pendingChanges = null;
+        for (Map.Entry<Integer, Run<?, ?>> change : changes.entrySet()) {
+            if (change.getValue() != null) {
+                put(change.getValue());
+            } else {
+                removeEntry(change.getKey());
+            }
+        }
+        loaded = true;
+        return !changes.isEmpty();
+    }
+
+    private synchronized void save() {
+        try {
+            getFile().write(this);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save the artifact index of " + project.getFullName(), e);
+        }
+    }
+
+    /**
+     * Artifacts of a build
+     */
+    private static class BuildArtifacts {
+
+        private final int number;
+
+        /** Id of the build, naming its directory */
+        private final String id;
+
+        private final long timestamp;
+
+        /** Paths of the artifacts, relative to the artifacts directory of the build */
+        private final String[] paths;
+
+        /** Encoded paths of the artifacts, for the URLs */
+        private final String[] hrefs;
+
+        private BuildArtifacts(int number, String id, long timestamp, int size) {
+            this.number = number;
+            this.id = id;
+            this.timestamp = timestamp;
+            this.paths = new String[size];
+            this.hrefs = new String[size];
+        }
+
+        /**
+         * @param build - completed
+         * @return the artifacts of the given build, listed from its artifacts directory, or null if it has none
+         */
+        private static BuildArtifacts read(Run<?, ?> build) {
+            List<? extends Artifact> artifacts = build.getArtifacts();
+            if (artifacts.isEmpty()) {
+                return null;
+            }
+            BuildArtifacts entry = new BuildArtifacts(build.getNumber(), build.getId(), build.getTimeInMillis(),
+                                                      artifacts.size());
+            for (int i = 0; i < artifacts.size(); i++) {
+                entry.paths[i] = artifacts.get(i).relativePath;
+                entry.hrefs[i] = artifacts.get(i).getHref();
+            }
+            return entry;
+        }
+
+        private String getFileName(int i) {
+            return paths[i].substring(Math.max(paths[i].lastIndexOf('/'), paths[i].lastIndexOf('\\')) + 1);
+        }
+
+        private Entry find(String artifactName, ArtifactMatcher artifactMatcher) {
+            for (int i = 0; i < paths.length; i++) {
+                String fileName = getFileName(i);
+                if (StringUtils.equals(artifactName, fileName)
+                    || (artifactMatcher != null && artifactMatcher.matches(fileName))) {
+                    return new Entry(this, i);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * An artifact of a build in the index
+     */
+    public static class Entry {
+
+        private final int buildNumber;
+
+        private final String buildId;
+
+        private final long buildTimestamp;
+
+        private final String fileName;
+
+        private final String path;
+
+        private final String href;
+
+        private Entry(BuildArtifacts build, int i) {
+            this.buildNumber = build.number;
+            this.buildId = build.id;
+            this.buildTimestamp = build.timestamp;
+            this.fileName = build.getFileName(i);
+            this.path = build.paths[i];
+            this.href = build.hrefs[i];
+        }
+
+        public int getBuildNumber() {
+            return buildNumber;
+        }
+
+        /**
+         * @return the date of the build, formatted like {@link Run#getTimestampString2()}
+         */
+        public String getBuildTimestampString2() {
+            return Util.XS_DATETIME_FORMATTER.format(new Date(buildTimestamp));
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * @return the path of the artifact, relative to the "artifact/" URL of its build
+         */
+        public String getHref() {
+            return href;
+        }
+    }
+
+    /**
+     * Keeps the indexes up to date : builds are indexed when they complete, and removed when they are deleted (indexes
+     * which have never been built are left alone, they will be built from the build history when first used). The
+     * changes received while an index is loaded are recorded by the index, and applied once it is loaded.
+     */
+    @Extension
+    public static class RunListenerImpl extends RunListener<Run<?, ?>> {
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public RunListenerImpl() {
+            super((Class) Run.class);
+        }
+
+        @Override
+        public void onCompleted(Run<?, ?> build, TaskListener listener) {
+            ArtifactIndex index = getExistingIndex(build);
+            if (index != null) {
+                index.add(build);
+            }
+        }
+
+        @Override
+        public void onDeleted(Run<?, ?> build) {
+            ArtifactIndex index = getExistingIndex(build);
+            if (index != null) {
+                index.remove(build.getNumber());
+            }
+        }
+
+        private ArtifactIndex getExistingIndex(Run<?, ?> build) {
+            if (!(build.getParent() instanceof AbstractProject)) {
+                return null;
+            }
+            AbstractProject<?, ?> project = (AbstractProject<?, ?>) build.getParent();
+            ArtifactIndex index;
+            synchronized (INDEXES) {
+                index = INDEXES.get(project);
+            }
+            // loaded, or being loaded
+            if (index != null) {
+                return index;
+            }
+            return getIfAvailable(project);
+        }
+    }
+
+    /**
+     * Forgets about the index of a project when the project is deleted
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onDeleted(Item item) {
+            synchronized (INDEXES) {
+                INDEXES.remove(item);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import java.io.IOException;
+
+/**
+ * Periodically removes from the loaded {@link ArtifactIndex}es the builds which artifacts have been deleted (by a log
+ * rotation), in the background : so that the {@link OptionProvider} does not check the whole history on each request.
+ */
+@Extension
+public class ArtifactIndexSweeper extends AsyncPeriodicWork {
+
+    public ArtifactIndexSweeper() {
+        super("Rundeck artifact index sweep");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return 5 * MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        for (ArtifactIndex index : ArtifactIndex.getLoadedIndexes()) {
+            index.removeDeletedArtifacts();
+        }
+    }
+}
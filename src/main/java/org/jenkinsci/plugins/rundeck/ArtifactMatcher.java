@@ -0,0 +1,121 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matcher for the file names of the artifacts, compiled from a java regex or from a glob. Instances are immutable and
+ * thread-safe : get them from the {@link PatternCache}.
+ */
+public abstract class ArtifactMatcher {
+
+    /**
+     * @param fileName of an artifact
+     * @return true if the whole file name matches
+     */
+    public abstract boolean matches(String fileName);
+
+    /**
+     * Matcher backed by a java regex
+     */
+    static class RegexMatcher extends ArtifactMatcher {
+
+        private final Pattern pattern;
+
+        RegexMatcher(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean matches(String fileName) {
+            return pattern.matcher(fileName).matches();
+        }
+
+        @Override
+        public String toString() {
+            return pattern.pattern();
+        }
+    }
+
+    /**
+     * Matcher for a glob : "*" matches any sequence of characters (including none), "?" matches any single character,
+     * and any other character matches itself (there is no escape, nor character class). The usual globs ("*.war",
+     * "app-*", "app.war") are matched with a simple comparison of the suffix / prefix / whole name, the others with a
+     * single pass which only goes back to the last "*" on a mismatch (so it never backtracks more than once per
+     * character, unlike a regex engine).
+     */
+    static class GlobMatcher extends ArtifactMatcher {
+
+        private final String glob;
+
+        /** Fixed part of a glob without wildcard, or with a single leading / trailing "*" - null otherwise */
+        private final String literal;
+
+        private final boolean leadingStar;
+
+        private final boolean trailingStar;
+
+        GlobMatcher(String glob) {
+            this.glob = glob;
+            String middle = glob;
+            boolean leading = false;
+            boolean trailing = false;
+            if (middle.startsWith("*")) {
+                middle = middle.substring(1);
+                leading = true;
+            }
+            if (middle.endsWith("*")) {
+                middle = middle.substring(0, middle.length() - 1);
+                trailing = true;
+            }
+            boolean simple = middle.indexOf('*') < 0 && middle.indexOf('?') < 0;
+            this.literal = simple ? middle : null;
+            this.leadingStar = leading;
+            this.trailingStar = trailing;
+        }
+
+        @Override
+        public boolean matches(String fileName) {
+            if (literal != null) {
+                if (leadingStar && trailingStar) {
+                    return fileName.contains(literal);
+                } else if (leadingStar) {
+                    return fileName.endsWith(literal);
+                } else if (trailingStar) {
+                    return fileName.startsWith(literal);
+                }
+                return fileName.equals(literal);
+            }
+
+            int g = 0;
+            int f = 0;
+            // position of the last "*" in the glob, and of the character of the file name it is currently matched up to
+            int star = -1;
+            int starMatch = 0;
+            while (f < fileName.length()) {
+                if (g < glob.length() && glob.charAt(g) == '*') {
+                    star = g++;
+                    starMatch = f;
+                } else if (g < glob.length() && (glob.charAt(g) == '?' || glob.charAt(g) == fileName.charAt(f))) {
+                    g++;
+                    f++;
+                } else if (star >= 0) {
+                    // mismatch : let the last "*" match one more character
+                    g = star + 1;
+                    f = ++starMatch;
+                } else {
+                    return false;
+                }
+            }
+            while (g < glob.length() && glob.charAt(g) == '*') {
+                g++;
+            }
+            return g == glob.length();
+        }
+
+        @Override
+        public String toString() {
+            return glob;
+        }
+    }
+
+}
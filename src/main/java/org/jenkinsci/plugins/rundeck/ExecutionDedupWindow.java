@@ -0,0 +1,142 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.rundeck.api.domain.RundeckExecution;
+
+/**
+ * Bounded, time-windowed set of the notifications already received, keyed by execution ID and status, so that the
+ * notifications retried by Rundeck (or duplicated on the way) are only processed once.
+ */
+public class ExecutionDedupWindow {
+
+    /** Default duration during which a notification is remembered, in milliseconds */
+    public static final long DEFAULT_WINDOW = 10 * 60 * 1000;
+
+    /** Default maximum number of notifications remembered */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private final long window;
+
+    private final int maxSize;
+
+    private final Clock clock;
+
+    /** Date at which each notification has been received, in insertion (and so chronological) order */
+    private final LinkedHashMap<String, Long> seen = new LinkedHashMap<String, Long>();
+
+    private final AtomicLong suppressed = new AtomicLong();
+
+    public ExecutionDedupWindow() {
+        this(DEFAULT_WINDOW, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param window duration during which a notification is remembered, in milliseconds
+     * @param maxSize maximum number of notifications remembered, the oldest ones are forgotten first
+     */
+    public ExecutionDedupWindow(long window, int maxSize) {
+        this(window, maxSize, Clock.SYSTEM);
+    }
+
+    /**
+     * @param window duration during which a notification is remembered, in milliseconds
+     * @param maxSize maximum number of notifications remembered, the oldest ones are forgotten first
+     * @param clock giving the current date
+     */
+    ExecutionDedupWindow(long window, int maxSize, Clock clock) {
+        this.window = window;
+        this.maxSize = maxSize;
+        this.clock = clock;
+    }
+
+    /**
+     * Remember the given notification
+     *
+     * @param execution at the origin of the notification
+     * @return true if this is the first time we see it (in the window), false if it is a duplicate
+     */
+    public synchronized boolean markSeen(RundeckExecution execution) {
+        String key = getKey(execution);
+        if (key == null) {
+            return true;
+        }
+        long now = clock.currentTimeMillis();
+        evict(now);
+        if (seen.containsKey(key)) {
+            suppressed.incrementAndGet();
+            return false;
+        }
+        seen.put(key, now);
+        if (seen.size() > maxSize) {
+            Iterator<String> it = seen.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+        return true;
+    }
+
+    /**
+     * Forget the given notification, for example because we could not process it : it will be processed if Rundeck
+     * sends it again
+     *
+     * @param execution at the origin of the notification
+     */
+    public synchronized void forget(RundeckExecution execution) {
+        String key = getKey(execution);
+        if (key != null) {
+            seen.remove(key);
+        }
+    }
+
+    /**
+     * Forget the notifications received before the window
+     */
+    private void evict(long now) {
+        for (Iterator<Map.Entry<String, Long>> it = seen.entrySet().iterator(); it.hasNext();) {
+            if (now - it.next().getValue() <= window) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+    private static String getKey(RundeckExecution execution) {
+        if (execution.getId() == null) {
+            return null;
+        }
+        return execution.getId() + ":" + execution.getStatus();
+    }
+
+    public synchronized int getSize() {
+        return seen.size();
+    }
+
+    /**
+     * @return the number of duplicate notifications suppressed
+     */
+    public long getSuppressed() {
+        return suppressed.get();
+    }
+
+    /**
+     * Source of the current date, replaced in tests
+     */
+    interface Clock {
+
+        Clock SYSTEM = new Clock() {
+
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+        };
+
+        /**
+         * @return the current date, in milliseconds
+         */
+        long currentTimeMillis();
+    }
+
+}
@@ -0,0 +1,278 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.model.AbstractProject;
+import hudson.model.Run;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jenkinsci.plugins.rundeck.ArtifactIndex.Entry;
+
+/**
+ * Finds the builds of an artifact in the build history of a project which has no {@link ArtifactIndex} yet, for the
+ * {@link OptionProvider} : the artifacts directories of the builds are listed by batches, concurrently on a bounded
+ * pool of threads, within a time budget. The index of the project is built in the background meanwhile, so that the
+ * following requests can use it.
+ */
+public class HistoryScanner {
+
+    private static final Logger LOGGER = Logger.getLogger(HistoryScanner.class.getName());
+
+    /** Number of threads listing the artifacts directories */
+    public static final int DEFAULT_THREADS = 4;
+
+    /** Number of builds checked concurrently */
+    public static final int BATCH_SIZE = 16;
+
+    /** Default maximum duration of a scan, in milliseconds */
+    public static final long DEFAULT_TIME_BUDGET = 10 * 1000;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private final int threads;
+
+    private ThreadPoolExecutor executor;
+
+    private ExecutorService indexExecutor;
+
+    /** Full names of the projects which index is being built */
+    private final Set<String> indexing = Collections.synchronizedSet(new HashSet<String>());
+
+    public HistoryScanner() {
+        this(DEFAULT_THREADS);
+    }
+
+    /**
+     * @param threads maximum number of threads listing the artifacts directories
+     */
+    public HistoryScanner(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Start scanning the history of the given project : the builds are checked as the returned iterator is read
+     *
+     * @param project
+     * @param artifactName exact file name of the artifact - may be null
+     * @param artifactMatcher to match against the artifact file name - may be null
+     * @param before only the builds with a lower number are checked, or null for all the builds
+     * @param timeBudget maximum duration of the scan, in milliseconds
+     * @return the first matching artifact of each build, most recent first
+     */
+    public Scan scan(AbstractProject<?, ?> project, String artifactName, ArtifactMatcher artifactMatcher,
+            Integer before, long timeBudget) {
+        return new Scan(project.getBuilds().iterator(), artifactName, artifactMatcher, before, timeBudget);
+    }
+
+    /**
+     * Build the index of the given project in the background, unless it is already being built
+     *
+     * @param project
+     */
+    public void index(final AbstractProject<?, ?> project) {
+        final String projectName = project.getFullName();
+        if (!indexing.add(projectName)) {
+            return;
+        }
+        getIndexExecutor().execute(new Runnable() {
+
+            public void run() {
+                try {
+                    ArtifactIndex.get(project);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Failed to build the artifact index of " + projectName, e);
+                } finally {
+                    indexing.remove(projectName);
+                }
+            }
+        });
+    }
+
+    /**
+     * Find the artifact of the given build, on a thread of the pool
+     *
+     * @param build - completed
+     * @param artifactName exact file name of the artifact - may be null
+     * @param artifactMatcher to match against the artifact file name - may be null
+     * @return the first matching artifact, or null if not found
+     */
+    Entry check(Run<?, ?> build, String artifactName, ArtifactMatcher artifactMatcher) {
+        return ArtifactIndex.scan(build, artifactName, artifactMatcher);
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads,
+                                              threads,
+                                              60,
+                                              TimeUnit.SECONDS,
+                                              new LinkedBlockingQueue<Runnable>(),
+                                              new ThreadFactory() {
+
+                                                  public Thread newThread(Runnable r) {
+                                                      Thread thread = new Thread(r, "Rundeck history scanner #"
+                                                                                    + THREAD_COUNTER.incrementAndGet());
+                                                      thread.setDaemon(true);
+                                                      return thread;
+                                                  }
+                                              });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    private synchronized ExecutorService getIndexExecutor() {
+        if (indexExecutor == null) {
+            indexExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Rundeck artifact indexer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return indexExecutor;
+    }
+
+    /**
+     * A scan of the build history, most recent builds first. Each batch of builds is checked concurrently, but the
+     * results are returned in the order of the builds, and only as many batches as needed by the reader are checked.
+     * Once the time budget is spent, the scan stops : see {@link #isPartial()}.
+     */
+    public class Scan implements Iterator<Entry> {
+
+        private final Iterator<? extends Run<?, ?>> builds;
+
+        private final String artifactName;
+
+        private final ArtifactMatcher artifactMatcher;
+
+        private final Integer before;
+
+        private final long deadline;
+
+        private Iterator<Entry> batch = Collections.<Entry> emptyList().iterator();
+
+        private boolean exhausted;
+
+        private boolean partial;
+
+        /** Number of the oldest build checked, all the more recent ones having been checked too */
+        private Integer lastChecked;
+
+        private Scan(Iterator<? extends Run<?, ?>> builds, String artifactName, ArtifactMatcher artifactMatcher,
+                Integer before, long timeBudget) {
+            this.builds = builds;
+            this.artifactName = artifactName;
+            this.artifactMatcher = artifactMatcher;
+            this.before = before;
+            this.deadline = System.currentTimeMillis() + timeBudget;
+        }
+
+        public boolean hasNext() {
+            while (!batch.hasNext() && !exhausted) {
+                batch = checkNextBatch().iterator();
+            }
+            return batch.hasNext();
+        }
+
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * @return true if the scan has been stopped before the end of the history, because the time budget is spent
+         */
+        public boolean isPartial() {
+            return partial;
+        }
+
+        /**
+         * @return the number of the oldest build checked (all the more recent ones have been checked too), or null if
+         *         no build has been checked : a following scan may resume from there
+         */
+        public Integer getLastChecked() {
+            return lastChecked;
+        }
+
+        private List<Entry> checkNextBatch() {
+            List<Run<?, ?>> runs = new ArrayList<Run<?, ?>>();
+            while (runs.size() < BATCH_SIZE && builds.hasNext()) {
+                Run<?, ?> build = builds.next();
+                if ((before == null || build.getNumber() < before) && !build.isBuilding()) {
+                    runs.add(build);
+                }
+            }
+            if (runs.isEmpty()) {
+                exhausted = true;
+                return Collections.emptyList();
+            }
+
+            List<Future<Entry>> futures = new ArrayList<Future<Entry>>(runs.size());
+            for (final Run<?, ?> build : runs) {
+                futures.add(getExecutor().submit(new Callable<Entry>() {
+
+                    public Entry call() {
+                        return check(build, artifactName, artifactMatcher);
+                    }
+                }));
+            }
+
+            // in the order of the builds
+            List<Entry> entries = new ArrayList<Entry>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    Entry entry = futures.get(i).get(Math.max(deadline - System.currentTimeMillis(), 0),
+                                                     TimeUnit.MILLISECONDS);
+                    if (entry != null) {
+                        entries.add(entry);
+                    }
+                } catch (ExecutionException e) {
+                    LOGGER.log(Level.WARNING, "Failed to list the artifacts of " + runs.get(i), e.getCause());
+                } catch (TimeoutException e) {
+                    stop(futures, i);
+                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stop(futures, i);
+                    break;
+                }
+                lastChecked = runs.get(i).getNumber();
+            }
+            return entries;
+        }
+
+        private void stop(List<Future<Entry>> futures, int from) {
+            for (int i = from; i < futures.size(); i++) {
+                futures.get(i).cancel(true);
+            }
+            exhausted = true;
+            partial = true;
+        }
+    }
+
+}
@@ -0,0 +1,216 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.domain.RundeckJob;
+
+/**
+ * Case-insensitive trie of Rundeck job identifiers : UUIDs, "project:group/name" references, and wildcard identifiers
+ * ending with "*" (for example "project:deploy/*" for all the jobs of the "deploy" group and its sub-groups, or
+ * "project:*" for all the jobs of a project). Identifiers are normalized once when added, so that matching a job walks
+ * its UUID and reference character by character, without building any string : both sides are lower-cased one
+ * character at a time, with {@link Character#toLowerCase(char)} (which does not depend on the default locale).<br>
+ * Not thread-safe for writes : build it completely before sharing it.
+ *
+ * @param <T> type of the values associated with the identifiers
+ */
+public class JobIdentifierTrie<T> {
+
+    private static final String NULL = "null";
+
+    private final Node<T> root = new Node<T>();
+
+    /** Returned while walking the trie when a prefix matched and we don't need to collect the values */
+    private final Node<T> matched = new Node<T>();
+
+    private int size = 0;
+
+    /**
+     * @param jobIdentifier could be either a job's UUID, a reference to a job in the format "project:group/job", or a
+     *            reference ending with "*"
+     * @return true if the identifier is a wildcard (ends with "*")
+     */
+    public static boolean isWildcard(String jobIdentifier) {
+        return StringUtils.trimToEmpty(jobIdentifier).endsWith("*");
+    }
+
+    /**
+     * Add the given identifier
+     *
+     * @param jobIdentifier could be either a job's UUID, a reference to a job in the format "project:group/job", or a
+     *            reference ending with "*" - ignored if blank
+     * @param value associated with the identifier
+     */
+    public void put(String jobIdentifier, T value) {
+        String normalized = StringUtils.trimToEmpty(jobIdentifier);
+        if (normalized.length() == 0) {
+            return;
+        }
+        boolean wildcard = normalized.endsWith("*");
+        if (wildcard) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+        Node<T> node = root;
+        for (int i = 0; i < normalized.length(); i++) {
+            node = node.getOrAddChild(Character.toLowerCase(normalized.charAt(i)));
+        }
+        if (wildcard) {
+            node.prefixValues = add(node.prefixValues, value);
+        } else {
+            node.exactValues = add(node.exactValues, value);
+        }
+        size++;
+    }
+
+    /**
+     * @param job to test - may be null
+     * @return true if at least one identifier matches the given job (its UUID or its reference)
+     */
+    public boolean matches(RundeckJob job) {
+        return visit(job, null);
+    }
+
+    /**
+     * Collect the values of all the identifiers matching the given job
+     *
+     * @param job to test - may be null
+     * @param result to which the values are added (a value may be added several times)
+     */
+    public void collect(RundeckJob job, Collection<T> result) {
+        visit(job, result);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param result to which the values are added, or null if we only want to know if there is a match (and stop at
+     *            the first one)
+     * @return true if there is a match (only meaningful when result is null)
+     */
+    private boolean visit(RundeckJob job, Collection<T> result) {
+        if (job == null) {
+            return false;
+        }
+        if (visitPrefix(root, result)) {
+            return true;
+        }
+
+        // UUID
+        if (job.getId() != null && visitEnd(walk(root, job.getId(), result), result) && result == null) {
+            return true;
+        }
+
+        // "project:group/job" reference
+        Node<T> node = walk(root, job.getProject() != null ? job.getProject() : NULL, result);
+        node = walk(node, ":", result);
+        if (StringUtils.isNotBlank(job.getGroup())) {
+            node = walk(node, job.getGroup(), result);
+            node = walk(node, "/", result);
+        }
+        node = walk(node, job.getName() != null ? job.getName() : NULL, result);
+        return visitEnd(node, result);
+    }
+
+    /**
+     * Walk the trie along the given value, collecting the values of the prefixes found on the way
+     *
+     * @return the node reached, {@link #matched} if we found a prefix and we don't collect the values, or null
+     */
+    private Node<T> walk(Node<T> node, String value, Collection<T> result) {
+        for (int i = 0; node != null && node != matched && i < value.length(); i++) {
+            node = node.getChild(Character.toLowerCase(value.charAt(i)));
+            if (node != null && visitPrefix(node, result)) {
+                return matched;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * @return true if the node holds a prefix and we don't collect the values
+     */
+    private boolean visitPrefix(Node<T> node, Collection<T> result) {
+        if (node.prefixValues == null) {
+            return false;
+        }
+        if (result == null) {
+            return true;
+        }
+        result.addAll(node.prefixValues);
+        return false;
+    }
+
+    /**
+     * @return true if the node (reached at the end of a UUID or reference) is a match
+     */
+    private boolean visitEnd(Node<T> node, Collection<T> result) {
+        if (node == matched) {
+            return true;
+        }
+        if (node == null || node.exactValues == null) {
+            return false;
+        }
+        if (result != null) {
+            result.addAll(node.exactValues);
+        }
+        return true;
+    }
+
+    private static <T> List<T> add(List<T> values, T value) {
+        List<T> result = values != null ? values : new ArrayList<T>(1);
+        result.add(value);
+        return result;
+    }
+
+    private static class Node<T> {
+
+        /** Sorted characters of the children */
+        private char[] keys = new char[0];
+
+        private Node<T>[] children = newArray(0);
+
+        private List<T> exactValues;
+
+        private List<T> prefixValues;
+
+        private Node<T> getChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private Node<T> getOrAddChild(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            char[] newKeys = new char[keys.length + 1];
+            Node<T>[] newChildren = newArray(keys.length + 1);
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, keys.length - insertAt);
+            Node<T> child = new Node<T>();
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = child;
+            keys = newKeys;
+            children = newChildren;
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(int length) {
+            return new Node[length];
+        }
+    }
+
+}
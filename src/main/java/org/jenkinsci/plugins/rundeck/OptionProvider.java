@@ -3,32 +3,60 @@ package org.jenkinsci.plugins.rundeck;
 import hudson.model.AbstractProject;
 import hudson.model.Hudson;
 import hudson.model.Run;
-import hudson.model.Run.Artifact;
-import hudson.util.RunList;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.Writer;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
+import java.util.logging.Logger;
 import java.util.regex.PatternSyntaxException;
 import javax.servlet.http.HttpServletResponse;
-import net.sf.json.JSONArray;
+import net.sf.json.util.JSONUtils;
 import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.rundeck.ArtifactIndex.Entry;
+import org.jenkinsci.plugins.rundeck.OptionResponseCache.CachedResponse;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
 /**
- * Option provider for Rundeck - see http://rundeck.org/docs/manual/jobs.html#option-model-provider
+ * Option provider for Rundeck - see http://rundeck.org/docs/manual/jobs.html#option-model-provider<br>
+ * Responses carry an ETag and a Last-Modified date derived from the state of the project (its last build, and its
+ * {@link ArtifactIndex}) : conditional requests are answered with a 304 when the project has not changed, and repeated
+ * requests are served from an {@link OptionResponseCache}.
  * 
  * @author Vincent Behar
  */
 public class OptionProvider {
 
+    private static final Logger LOGGER = Logger.getLogger(OptionProvider.class.getName());
+
+    /** Response header holding the cursor of the next page of builds */
+    public static final String NEXT_CURSOR_HEADER = "X-Rundeck-Next-Cursor";
+
+    /** Response header set when the scan of the build history ran out of time, the results being partial */
+    public static final String PARTIAL_HEADER = "X-Rundeck-Partial";
+
+    /** Responses larger than this (in characters) are not kept in the {@link OptionResponseCache} */
+    static final int MAX_CACHED_SIZE = 64 * 1024;
+
+    /** Number of builds read from the {@link ArtifactIndex} at once, when streaming the builds */
+    private static final int BATCH_SIZE = 100;
+
+    private static final String CONTENT_TYPE = "application/json;charset=UTF-8";
+
+    private final OptionResponseCache responseCache = new OptionResponseCache();
+
+    private final HistoryScanner historyScanner = new HistoryScanner();
+
     /**
      * Provider for artifacts of a specific build, with the name and absolute url of the artifact.<br>
      * Mandatory parameter : "project"<br>
      * Optional parameters : "build" (either a build number, or "lastStable", "lastSuccessful", "last"), "artifactRegex"
-     * (java regex used to filter artifacts).
+     * (java regex used to filter artifacts) or "artifactGlob" (glob with "*" and "?" wildcards, used to filter
+     * artifacts).
      */
     public void doArtifact(StaplerRequest request, StaplerResponse response) throws IOException {
         // mandatory parameters
@@ -39,16 +67,28 @@ public class OptionProvider {
         }
 
         // optional parameters
-        String artifactRegex = request.getParameter("artifactRegex");
-        Pattern artifactPattern = null;
-        if (StringUtils.isNotBlank(artifactRegex)) {
-            try {
-                artifactPattern = Pattern.compile(artifactRegex);
-            } catch (PatternSyntaxException e) {
-                response.sendError(HttpServletResponse.SC_BAD_REQUEST,
-                                   "Invalid java-regex syntax for the 'artifactRegex' parameter : " + e.getMessage());
+        ArtifactMatcher artifactMatcher;
+        try {
+            artifactMatcher = getArtifactMatcher(request);
+        } catch (PatternSyntaxException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                               "Invalid java-regex syntax for the 'artifactRegex' parameter : " + e.getMessage());
+            return;
+        }
+
+        // without index, the artifacts are listed from the build (and the response is neither validated nor cached)
+        ArtifactIndex index = ArtifactIndex.getIfAvailable(project);
+        String cacheKey = getCacheKey("artifact", request);
+        String eTag = null;
+        long lastModified = 0;
+        if (index != null) {
+            eTag = getETag(project, index);
+            lastModified = getLastModified(project, index);
+            if (answerFromCache(cacheKey, eTag, lastModified, request, response)) {
                 return;
             }
+        } else {
+            historyScanner.index(project);
         }
 
         Run<?, ?> build = findBuild(request.getParameter("build"), project);
@@ -56,23 +96,31 @@ public class OptionProvider {
             return;
         }
 
-        List<Option> options = new ArrayList<OptionProvider.Option>();
-        for (Artifact artifact : build.getArtifacts()) {
-            if (artifactPattern == null
-                || (artifactPattern != null && artifactPattern.matcher(artifact.getFileName()).matches())) {
-                options.add(new Option(artifact.getFileName(), buildArtifactUrl(build, artifact)));
+        writeHeaders(eTag, lastModified, response);
+        OptionWriter writer = new OptionWriter(response);
+        List<Entry> artifacts = index != null ? index.getArtifacts(build.getNumber()) : ArtifactIndex.scan(build);
+        for (Entry artifact : artifacts) {
+            if (artifactMatcher == null || artifactMatcher.matches(artifact.getFileName())) {
+                writer.write(new Option(artifact.getFileName(), buildArtifactUrl(project, artifact)));
             }
         }
-
-        writeJson(options, response);
+        cacheResponse(writer.close(), project, cacheKey, eTag, lastModified, null);
     }
 
     /**
      * Provider for builds of a specific artifact, with the version/date of the build and absolute url of the artifact.<br>
-     * Mandatory parameters : "project" and either "artifact" (exact filename of the artifact) or "artifactRegex" (java
-     * regex used to match against the filename of the artifact).<br>
+     * Mandatory parameters : "project" and either "artifact" (exact filename of the artifact), "artifactRegex" (java
+     * regex used to match against the filename of the artifact) or "artifactGlob" (glob with "*" and "?" wildcards, used
+     * to match against the filename of the artifact).<br>
      * Optional parameters : "limit" (int), "includeLastStableBuild" (boolean), "includeLastSuccessfulBuild" (boolean),
-     * "includeLastBuild" (boolean)
+     * "includeLastBuild" (boolean)<br>
+     * Paging parameters : "offset" (int, number of builds to skip) and "cursor" (only the builds older than this build
+     * number). When a limit is given and more builds are available, the cursor of the next page is returned in the
+     * {@value #NEXT_CURSOR_HEADER} header. The "includeLast*" options are only returned on the first page.<br>
+     * When the project has no {@link ArtifactIndex} yet, the build history is scanned by the {@link HistoryScanner}
+     * (while the index is built in the background) : the scan stops after {@link HistoryScanner#DEFAULT_TIME_BUDGET},
+     * with partial results, flagged by the {@value #PARTIAL_HEADER} header (and the cursor to resume from, with or
+     * without a limit).
      */
     public void doBuild(StaplerRequest request, StaplerResponse response) throws IOException {
         // mandatory parameters
@@ -82,70 +130,202 @@ public class OptionProvider {
             return;
         }
         String artifactName = request.getParameter("artifact");
-        String artifactRegex = request.getParameter("artifactRegex");
-        if (StringUtils.isBlank(artifactName) && StringUtils.isBlank(artifactRegex)) {
+        ArtifactMatcher artifactMatcher;
+        try {
+            artifactMatcher = getArtifactMatcher(request);
+        } catch (PatternSyntaxException e) {
             response.sendError(HttpServletResponse.SC_BAD_REQUEST,
-                               "You must provide either a valid 'artifact' or 'artifactRegex' parameter !");
+                               "Invalid java-regex syntax for the 'artifactRegex' parameter : " + e.getMessage());
             return;
         }
-        Pattern artifactPattern = null;
-        if (StringUtils.isNotBlank(artifactRegex)) {
-            try {
-                artifactPattern = Pattern.compile(artifactRegex);
-            } catch (PatternSyntaxException e) {
-                response.sendError(HttpServletResponse.SC_BAD_REQUEST,
-                                   "Invalid java-regex syntax for the 'artifactRegex' parameter : " + e.getMessage());
-                return;
-            }
+        if (StringUtils.isBlank(artifactName) && artifactMatcher == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST,
+                               "You must provide either a valid 'artifact', 'artifactRegex' or 'artifactGlob' "
+                                       + "parameter !");
+            return;
         }
 
         // optional parameters
-        Integer limit;
-        try {
-            limit = Integer.parseInt(request.getParameter("limit"));
-        } catch (NumberFormatException e) {
-            limit = null;
+        Integer limit = parseInt(request.getParameter("limit"));
+        Integer offset = parseInt(request.getParameter("offset"));
+        Integer cursor = parseInt(request.getParameter("cursor"));
+
+        // without index, the history is scanned (and the response is neither validated nor cached)
+        ArtifactIndex index = ArtifactIndex.getIfAvailable(project);
+        String cacheKey = getCacheKey("build", request);
+        String eTag = null;
+        long lastModified = 0;
+        Iterator<Entry> builds;
+        HistoryScanner.Scan scan = null;
+        if (index != null) {
+            eTag = getETag(project, index);
+            lastModified = getLastModified(project, index);
+            if (answerFromCache(cacheKey, eTag, lastModified, request, response)) {
+                return;
+            }
+            builds = new BuildIterator(index, artifactName, artifactMatcher, cursor);
+        } else {
+            historyScanner.index(project);
+            scan = historyScanner.scan(project, artifactName, artifactMatcher, cursor,
+                                       HistoryScanner.DEFAULT_TIME_BUDGET);
+            builds = scan;
+        }
+        for (int i = 0; offset != null && i < offset && builds.hasNext(); i++) {
+            builds.next();
         }
 
-        // build options
-        List<Option> options = new ArrayList<OptionProvider.Option>();
-        RunList<?> builds = project.getBuilds();
-        for (Run<?, ?> build : builds) {
-            Artifact artifact = findArtifact(artifactName, artifactPattern, build);
-            if (artifact != null) {
-                String buildName = "#" + build.getNumber() + " - " + build.getTimestampString2();
-                options.add(new Option(buildName, buildArtifactUrl(build, artifact)));
+        // with a limit, the page is read first (looking one build ahead) so that we know if there is a next page before
+        // writing the headers, and so is a scan (bounded by its time budget) so that we know if it is partial. Otherwise,
+        // the builds are written as they are read from the index.
+        Iterator<Entry> page = builds;
+        String nextCursor = null;
+        if (limit != null || scan != null) {
+            List<Entry> entries = new ArrayList<Entry>();
+            while ((limit == null || entries.size() < limit) && builds.hasNext()) {
+                entries.add(builds.next());
             }
-
-            if (limit != null && options.size() >= limit) {
-                break;
+            if (!entries.isEmpty() && builds.hasNext()) {
+                nextCursor = String.valueOf(entries.get(entries.size() - 1).getBuildNumber());
+            } else if (scan != null && scan.isPartial()) {
+                // out of time : resume after the last build checked (or from where we started, if none)
+                Integer resumeFrom = scan.getLastChecked() != null ? scan.getLastChecked() : cursor;
+                nextCursor = resumeFrom != null ? String.valueOf(resumeFrom) : null;
             }
+            page = entries.iterator();
         }
 
-        // add optional references to last / lastStable / lastSuccessful builds
-        if (Boolean.valueOf(request.getParameter("includeLastStableBuild"))) {
-            Run<?, ?> build = project.getLastStableBuild();
-            Artifact artifact = findArtifact(artifactName, artifactPattern, build);
-            if (build != null && artifact != null) {
-                options.add(0, new Option("lastStableBuild", buildArtifactUrl(build, artifact)));
-            }
+        writeHeaders(eTag, lastModified, response);
+        if (nextCursor != null) {
+            response.setHeader(NEXT_CURSOR_HEADER, nextCursor);
         }
-        if (Boolean.valueOf(request.getParameter("includeLastSuccessfulBuild"))) {
-            Run<?, ?> build = project.getLastSuccessfulBuild();
-            Artifact artifact = findArtifact(artifactName, artifactPattern, build);
-            if (build != null && artifact != null) {
-                options.add(0, new Option("lastSuccessfulBuild", buildArtifactUrl(build, artifact)));
-            }
+        if (scan != null && scan.isPartial()) {
+            response.setHeader(PARTIAL_HEADER, "true");
         }
-        if (Boolean.valueOf(request.getParameter("includeLastBuild"))) {
-            Run<?, ?> build = project.getLastBuild();
-            Artifact artifact = findArtifact(artifactName, artifactPattern, build);
-            if (build != null && artifact != null) {
-                options.add(0, new Option("lastBuild", buildArtifactUrl(build, artifact)));
+        OptionWriter writer = new OptionWriter(response);
+
+        // add optional references to last / lastSuccessful / lastStable builds, on the first page
+        if ((offset == null || offset == 0) && cursor == null) {
+            if (Boolean.valueOf(request.getParameter("includeLastBuild"))) {
+                Entry artifact = findArtifact(artifactName, artifactMatcher, index, project.getLastBuild());
+                if (artifact != null) {
+                    writer.write(new Option("lastBuild", buildArtifactUrl(project, artifact)));
+                }
+            }
+            if (Boolean.valueOf(request.getParameter("includeLastSuccessfulBuild"))) {
+                Entry artifact = findArtifact(artifactName, artifactMatcher, index, project.getLastSuccessfulBuild());
+                if (artifact != null) {
+                    writer.write(new Option("lastSuccessfulBuild", buildArtifactUrl(project, artifact)));
+                }
+            }
+            if (Boolean.valueOf(request.getParameter("includeLastStableBuild"))) {
+                Entry artifact = findArtifact(artifactName, artifactMatcher, index, project.getLastStableBuild());
+                if (artifact != null) {
+                    writer.write(new Option("lastStableBuild", buildArtifactUrl(project, artifact)));
+                }
             }
         }
 
-        writeJson(options, response);
+        while (page.hasNext()) {
+            Entry artifact = page.next();
+            String buildName = "#" + artifact.getBuildNumber() + " - " + artifact.getBuildTimestampString2();
+            writer.write(new Option(buildName, buildArtifactUrl(project, artifact)));
+        }
+        cacheResponse(writer.close(), project, cacheKey, eTag, lastModified, nextCursor);
+        if (scan != null && scan.isPartial()) {
+            LOGGER.fine("Partial scan of the history of " + project.getFullName() + ", stopped after build #"
+                        + scan.getLastChecked());
+        }
+    }
+
+    public OptionResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public HistoryScanner getHistoryScanner() {
+        return historyScanner;
+    }
+
+    /**
+     * @param endpoint name of the provider
+     * @param request
+     * @return the key of the response to the given request in the cache
+     */
+    private String getCacheKey(String endpoint, StaplerRequest request) {
+        return endpoint + "?" + request.getQueryString() + "@" + Hudson.getInstance().getRootUrl();
+    }
+
+    /**
+     * The ETag changes when a build is started or completed, and when the artifacts of a build are indexed or removed
+     * (including the artifacts deleted by a log rotation, once removed by the {@link ArtifactIndexSweeper} or by a
+     * search of the index)
+     * 
+     * @param project
+     * @param index of the artifacts of the project
+     * @return the ETag of the current state of the project
+     */
+    private String getETag(AbstractProject<?, ?> project, ArtifactIndex index) {
+        StringBuilder eTag = new StringBuilder("\"");
+        Run<?, ?> lastBuild = project.getLastBuild();
+        if (lastBuild != null) {
+            eTag.append(lastBuild.getNumber()).append(lastBuild.isBuilding() ? "b" : "c").append('-');
+        }
+        eTag.append(index.getLastModified()).append('"');
+        return eTag.toString();
+    }
+
+    /**
+     * @param project
+     * @param index of the artifacts of the project
+     * @return the date of the last change of the project (a build started or completed, or artifacts indexed or removed)
+     */
+    private long getLastModified(AbstractProject<?, ?> project, ArtifactIndex index) {
+        long lastModified = index.getLastModified();
+        Run<?, ?> lastBuild = project.getLastBuild();
+        if (lastBuild != null) {
+            lastModified = Math.max(lastModified, lastBuild.getTimeInMillis() + lastBuild.getDuration());
+        }
+        return lastModified;
+    }
+
+    /**
+     * Answer the request without computing the options, if possible : with a 304 if the client already has the
+     * current response (If-None-Match or If-Modified-Since), or with the cached response
+     * 
+     * @return true if the request has been answered
+     */
+    private boolean answerFromCache(String cacheKey, String eTag, long lastModified, StaplerRequest request,
+            StaplerResponse response) throws IOException {
+        if (isNotModified(eTag, lastModified, request)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            writeHeaders(eTag, lastModified, response);
+            return true;
+        }
+        CachedResponse cached = responseCache.get(cacheKey, eTag);
+        if (cached == null) {
+            return false;
+        }
+        writeResponse(cached, response);
+        return true;
+    }
+
+    private boolean isNotModified(String eTag, long lastModified, StaplerRequest request) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : StringUtils.split(ifNoneMatch, ",")) {
+                if ("*".equals(candidate.trim()) || eTag.equals(candidate.trim())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // HTTP dates have a precision of 1 second
+        return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
     }
 
     /**
@@ -199,59 +379,209 @@ public class OptionProvider {
     }
 
     /**
-     * Find an artifact of the given build, matching the artifactName (filename) or the artifactPattern (java-regex). If
-     * not found, return null.
+     * Find an artifact of the given build, matching the artifactName (filename) or the artifactMatcher (java-regex or
+     * glob). If not found, return null.
      * 
      * @param artifactName exact filename of the artifact - may be null
-     * @param artifactPattern to match against the artifact filename - may be null
-     * @param build
-     * @return an {@link Artifact} instance, or null if not found
+     * @param artifactMatcher to match against the artifact filename - may be null
+     * @param index of the artifacts of the project - may be null, the artifacts of the build are then listed
+     * @param build - may be null
+     * @return an {@link Entry} instance, or null if not found
      */
-    private Artifact findArtifact(String artifactName, Pattern artifactPattern, Run<?, ?> build) {
+    private Entry findArtifact(String artifactName, ArtifactMatcher artifactMatcher, ArtifactIndex index,
+            Run<?, ?> build) {
         if (build == null) {
             return null;
         }
-
-        for (Artifact artifact : build.getArtifacts()) {
-            if (StringUtils.equals(artifactName, artifact.getFileName())) {
-                return artifact;
-            }
-            if (artifactPattern != null && artifactPattern.matcher(artifact.getFileName()).matches()) {
-                return artifact;
-            }
+        if (index == null) {
+            return build.isBuilding() ? null : ArtifactIndex.scan(build, artifactName, artifactMatcher);
         }
-
-        return null;
+        return index.find(build.getNumber(), artifactName, artifactMatcher);
     }
 
     /**
      * Build the absolute url of the given artifact
      * 
-     * @param build
+     * @param project
      * @param artifact
      * @return absolute url
      */
-    private String buildArtifactUrl(Run<?, ?> build, Artifact artifact) {
+    private String buildArtifactUrl(AbstractProject<?, ?> project, Entry artifact) {
         StringBuilder url = new StringBuilder();
         url.append(Hudson.getInstance().getRootUrl());
-        url.append(build.getUrl()).append("artifact/").append(artifact.getHref());
+        url.append(project.getUrl()).append(artifact.getBuildNumber()).append("/artifact/").append(artifact.getHref());
         return url.toString();
     }
 
     /**
-     * Outputs the given list of options as a JSON. See format at
-     * http://rundeck.org/docs/manual/job-options.html#option-model-provider
+     * Keep the given response in the cache, if it was small enough to be kept by the {@link OptionWriter}
      * 
-     * @param options
-     * @param response
+     * @param body of the response, or null if too large
+     * @param project
+     * @param cacheKey key of the response in the cache
+     * @param eTag of the project, when we started computing the options - null if the project has no index
+     * @param lastModified date of the project, when we started computing the options
+     * @param nextCursor cursor of the next page - may be null
+     */
+    private void cacheResponse(String body, AbstractProject<?, ?> project, String cacheKey, String eTag,
+            long lastModified, String nextCursor) {
+        if (body != null && eTag != null) {
+            responseCache.put(cacheKey, new CachedResponse(project.getFullName(), eTag, lastModified, body, nextCursor));
+        }
+    }
+
+    private void writeResponse(CachedResponse cached, StaplerResponse response) throws IOException {
+        writeHeaders(cached.getETag(), cached.getLastModified(), response);
+        if (cached.getNextCursor() != null) {
+            response.setHeader(NEXT_CURSOR_HEADER, cached.getNextCursor());
+        }
+        response.setContentType(CONTENT_TYPE);
+        response.getWriter().append(cached.getBody());
+    }
+
+    /**
+     * @param request with an optional "artifactRegex" (used first) or "artifactGlob" parameter
+     * @return the matcher for the file names of the artifacts, or null if none is given
+     * @throws PatternSyntaxException if the regex is invalid
+     */
+    private ArtifactMatcher getArtifactMatcher(StaplerRequest request) throws PatternSyntaxException {
+        String artifactRegex = request.getParameter("artifactRegex");
+        if (StringUtils.isNotBlank(artifactRegex)) {
+            return PatternCache.getRegex(artifactRegex);
+        }
+        String artifactGlob = request.getParameter("artifactGlob");
+        if (StringUtils.isNotBlank(artifactGlob)) {
+            return PatternCache.getGlob(artifactGlob);
+        }
+        return null;
+    }
+
+    private static Integer parseInt(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void writeHeaders(String eTag, long lastModified, StaplerResponse response) {
+        if (eTag != null) {
+            response.setHeader("ETag", eTag);
+            response.setDateHeader("Last-Modified", lastModified);
+        }
+        // clients may keep the response, but must check that it is still valid
+        response.setHeader("Cache-Control", "no-cache");
+    }
+
+    /**
+     * Writes the options as a JSON array straight to the response, as they are found (see format at
+     * http://rundeck.org/docs/manual/job-options.html#option-model-provider). A copy of the output is kept for the
+     * {@link OptionResponseCache}, as long as it is smaller than {@link OptionProvider#MAX_CACHED_SIZE}.
+     */
+    static class OptionWriter {
+
+        private final Writer out;
+
+        private final int maxCopySize;
+
+        /** Copy of the output, or null once it is too large */
+        private StringBuilder copy = new StringBuilder();
+
+        private boolean first = true;
+
+        OptionWriter(StaplerResponse response) throws IOException {
+            this(prepare(response), MAX_CACHED_SIZE);
+        }
+
+        OptionWriter(Writer out, int maxCopySize) throws IOException {
+            this.out = out;
+            this.maxCopySize = maxCopySize;
+            append("[");
+        }
+
+        private static Writer prepare(StaplerResponse response) throws IOException {
+            response.setContentType(CONTENT_TYPE);
+            return response.getWriter();
+        }
+
+        void write(Option option) throws IOException {
+            append(first ? "{\"name\":" : ",{\"name\":");
+            append(JSONUtils.quote(option.getName()));
+            append(",\"value\":");
+            append(JSONUtils.quote(option.getValue()));
+            append("}");
+            first = false;
+        }
+
+        /**
+         * @return the whole output, or null if it was too large to be kept
+         */
+        String close() throws IOException {
+            append("]");
+            out.flush();
+            return copy != null ? copy.toString() : null;
+        }
+
+        private void append(String json) throws IOException {
+            out.write(json);
+            if (copy != null) {
+                if (copy.length() + json.length() > maxCopySize) {
+                    copy = null;
+                } else {
+                    copy.append(json);
+                }
+            }
+        }
+    }
+
+    /**
+     * Iterates over the builds of an artifact in the {@link ArtifactIndex}, most recent first, reading them by batches
      */
-    private void writeJson(List<Option> options, StaplerResponse response) throws IOException {
-        JSONArray array = new JSONArray();
-        array.addAll(options);
-        String json = array.toString();
+    private static class BuildIterator implements Iterator<Entry> {
+
+        private final ArtifactIndex index;
+
+        private final String artifactName;
+
+        private final ArtifactMatcher artifactMatcher;
 
-        response.setContentType("application/json;charset=UTF-8");
-        response.getWriter().append(json);
+        /** Number of the last build read from the index, or null */
+        private Integer before;
+
+        private Iterator<Entry> batch = Collections.<Entry> emptyList().iterator();
+
+        private boolean exhausted;
+
+        private BuildIterator(ArtifactIndex index, String artifactName, ArtifactMatcher artifactMatcher,
+                Integer before) {
+            this.index = index;
+            this.artifactName = artifactName;
+            this.artifactMatcher = artifactMatcher;
+            this.before = before;
+        }
+
+        public boolean hasNext() {
+            if (!batch.hasNext() && !exhausted) {
+                List<Entry> entries = index.find(artifactName, artifactMatcher, before, BATCH_SIZE);
+                exhausted = entries.size() < BATCH_SIZE;
+                if (!entries.isEmpty()) {
+                    before = entries.get(entries.size() - 1).getBuildNumber();
+                }
+                batch = entries.iterator();
+            }
+            return batch.hasNext();
+        }
+
+        public Entry next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 
     /**
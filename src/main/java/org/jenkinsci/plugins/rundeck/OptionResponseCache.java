@@ -0,0 +1,175 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.Extension;
+import hudson.model.Hudson;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of the JSON responses of the {@link OptionProvider}, by request. Each response is stored with the
+ * ETag of its project at the time it was rendered, so that a response is only served while the project has not changed
+ * (see {@link OptionProvider}). The responses of a project are also dropped as soon as one of its builds completes or
+ * is deleted (see {@link RunListenerImpl}).
+ */
+public class OptionResponseCache {
+
+    /** Default maximum number of responses kept */
+    public static final int DEFAULT_MAX_SIZE = 200;
+
+    private final int maxSize;
+
+    /** Responses by request, in access order (least recently used first) */
+    private final LinkedHashMap<String, CachedResponse> responses;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public OptionResponseCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize maximum number of responses kept, the least recently used ones are dropped first
+     */
+    public OptionResponseCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true);
+    }
+
+    /**
+     * @param key identifying the request
+     * @param eTag current ETag of the project
+     * @return the cached response, or null if not found or rendered for another state of the project
+     */
+    public synchronized CachedResponse get(String key, String eTag) {
+        CachedResponse response = responses.get(key);
+        if (response == null || !response.getETag().equals(eTag)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return response;
+    }
+
+    /**
+     * @param key identifying the request
+     * @param response rendered for the request
+     */
+    public synchronized void put(String key, CachedResponse response) {
+        responses.put(key, response);
+        if (responses.size() > maxSize) {
+            Iterator<String> it = responses.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Drop the responses of the given project
+     *
+     * @param projectName full name of the project
+     */
+    public synchronized void invalidate(String projectName) {
+        for (Iterator<CachedResponse> it = responses.values().iterator(); it.hasNext();) {
+            if (it.next().getProjectName().equals(projectName)) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized int getSize() {
+        return responses.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * A rendered response, with the state of its project
+     */
+    public static class CachedResponse {
+
+        private final String projectName;
+
+        private final String eTag;
+
+        private final long lastModified;
+
+        private final String body;
+
+        /** Cursor of the next page of a paged response, or null */
+        private final String nextCursor;
+
+        public CachedResponse(String projectName, String eTag, long lastModified, String body) {
+            this(projectName, eTag, lastModified, body, null);
+        }
+
+        public CachedResponse(String projectName, String eTag, long lastModified, String body, String nextCursor) {
+            this.projectName = projectName;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.body = body;
+            this.nextCursor = nextCursor;
+        }
+
+        public String getProjectName() {
+            return projectName;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    /**
+     * Drops the cached responses of a project when one of its builds completes or is deleted
+     */
+    @Extension
+    public static class RunListenerImpl extends RunListener<Run<?, ?>> {
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        public RunListenerImpl() {
+            super((Class) Run.class);
+        }
+
+        @Override
+        public void onCompleted(Run<?, ?> build, TaskListener listener) {
+            invalidate(build);
+        }
+
+        @Override
+        public void onDeleted(Run<?, ?> build) {
+            invalidate(build);
+        }
+
+        private void invalidate(Run<?, ?> build) {
+            RundeckPlugin plugin = Hudson.getInstance().getPlugin(RundeckPlugin.class);
+            if (plugin != null && plugin.getOptions() != null) {
+                plugin.getOptions().getResponseCache().invalidate(build.getParent().getFullName());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import org.jenkinsci.plugins.rundeck.ArtifactMatcher.GlobMatcher;
+import org.jenkinsci.plugins.rundeck.ArtifactMatcher.RegexMatcher;
+
+/**
+ * Bounded LRU cache of the {@link ArtifactMatcher}s compiled from the regexes and globs used by the plugin (the
+ * "artifactRegex" / "artifactGlob" parameters of the {@link OptionProvider}, and the $ARTIFACT_NAME{regex} tokens of
+ * the {@link RundeckNotifier}), shared by the whole plugin : the same few filters are used over and over.
+ */
+public class PatternCache {
+
+    /** Maximum number of matchers kept */
+    public static final int MAX_SIZE = 100;
+
+    /** Matchers by "regex:" or "glob:" + expression, in access order (least recently used first) */
+    private static final LinkedHashMap<String, ArtifactMatcher> MATCHERS = new LinkedHashMap<String, ArtifactMatcher>(
+            16, 0.75f, true);
+
+    private static final AtomicLong HITS = new AtomicLong();
+
+    private static final AtomicLong MISSES = new AtomicLong();
+
+    private PatternCache() {
+        // utility class
+    }
+
+    /**
+     * @param regex java regex, matched against the whole file name
+     * @return the compiled matcher
+     * @throws PatternSyntaxException if the regex is invalid (invalid regexes are not cached)
+     */
+    public static ArtifactMatcher getRegex(String regex) throws PatternSyntaxException {
+        String key = "regex:" + regex;
+        ArtifactMatcher matcher = get(key);
+        if (matcher == null) {
+            matcher = put(key, new RegexMatcher(Pattern.compile(regex)));
+        }
+        return matcher;
+    }
+
+    /**
+     * @param glob with "*" and "?" wildcards (see {@link GlobMatcher}), matched against the whole file name
+     * @return the compiled matcher
+     */
+    public static ArtifactMatcher getGlob(String glob) {
+        String key = "glob:" + glob;
+        ArtifactMatcher matcher = get(key);
+        if (matcher == null) {
+            matcher = put(key, new GlobMatcher(glob));
+        }
+        return matcher;
+    }
+
+    public static long getHits() {
+        return HITS.get();
+    }
+
+    public static long getMisses() {
+        return MISSES.get();
+    }
+
+    public static int getSize() {
+        synchronized (MATCHERS) {
+            return MATCHERS.size();
+        }
+    }
+
+    private static ArtifactMatcher get(String key) {
+        synchronized (MATCHERS) {
+            ArtifactMatcher matcher = MATCHERS.get(key);
+            (matcher != null ? HITS : MISSES).incrementAndGet();
+            return matcher;
+        }
+    }
+
+    private static ArtifactMatcher put(String key, ArtifactMatcher matcher) {
+        synchronized (MATCHERS) {
+            MATCHERS.put(key, matcher);
+            if (MATCHERS.size() > MAX_SIZE) {
+                Iterator<String> it = MATCHERS.keySet().iterator();
+                it.next();
+                it.remove();
+            }
+            return matcher;
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.Random;
+
+/**
+ * Computes when a running Rundeck execution should be polled next. If we know how long the job usually takes, we
+ * first wait for half of the expected remaining time, so that polls get closer as the expected end approaches. Once
+ * the expected duration is exceeded (or if it is unknown), we back off exponentially from the minimum interval. A bit
+ * of jitter is added so that executions triggered together do not all hit Rundeck at the same time. Failed polls are
+ * retried with their own exponential backoff, from the minimum interval.
+ */
+public class PollSchedule {
+
+    /** Relative amount of jitter applied to each delay (0.2 = +/- 20%) */
+    private static final double JITTER = 0.2;
+
+    private static final Random RANDOM = new Random();
+
+    private final long startedAt;
+
+    private final Long expectedDuration;
+
+    private final long minInterval;
+
+    private final long maxInterval;
+
+    private int backoffPolls = 0;
+
+    private int failedPolls = 0;
+
+    /**
+     * @param startedAt date at which the execution started, in milliseconds
+     * @param expectedDuration expected duration of the execution in milliseconds, or null if unknown
+     * @param minInterval minimum delay between 2 polls, in milliseconds
+     * @param maxInterval maximum delay between 2 polls, in milliseconds
+     */
+    public PollSchedule(long startedAt, Long expectedDuration, long minInterval, long maxInterval) {
+        this.startedAt = startedAt;
+        this.expectedDuration = expectedDuration != null && expectedDuration > 0 ? expectedDuration : null;
+        this.minInterval = minInterval;
+        this.maxInterval = Math.max(minInterval, maxInterval);
+    }
+
+    /**
+     * Compute the delay before the next poll, and move the schedule forward.
+     *
+     * @param now current time, in milliseconds
+     * @return the delay before the next poll, in milliseconds
+     */
+    public synchronized long nextDelay(long now) {
+        failedPolls = 0;
+        long delay;
+        long remaining = expectedDuration != null ? startedAt + expectedDuration - now : 0;
+        if (remaining > 0) {
+            delay = remaining / 2;
+        } else {
+            delay = minInterval << Math.min(backoffPolls, 20);
+            backoffPolls++;
+        }
+        return jitter(delay);
+    }
+
+    /**
+     * Compute the delay before retrying a failed poll, and count the failure. The next successful poll (see
+     * {@link #nextDelay(long)}) resets the count.
+     *
+     * @return the delay before the next poll, in milliseconds
+     */
+    public synchronized long nextRetryDelay() {
+        long delay = minInterval << Math.min(failedPolls, 20);
+        failedPolls++;
+        return jitter(delay);
+    }
+
+    /**
+     * @return the number of consecutive failed polls
+     */
+    public synchronized int getFailedPolls() {
+        return failedPolls;
+    }
+
+    private long jitter(long delay) {
+        delay = (long) (delay * (1 - JITTER + 2 * JITTER * RANDOM.nextDouble()));
+        return Math.min(maxInterval, Math.max(minInterval, delay));
+    }
+
+    public Long getExpectedDuration() {
+        return expectedDuration;
+    }
+}
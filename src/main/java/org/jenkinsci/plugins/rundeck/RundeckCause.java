@@ -7,45 +7,80 @@ import hudson.model.Cause;
 import org.apache.commons.lang.StringUtils;
 import org.rundeck.api.domain.RundeckExecution;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
- * The cause of a Rundeck initiated build (encapsulates the {@link RundeckExecution} at the origin of the Rundeck
- * notification).
- * 
+ * The cause of a Rundeck initiated build (describes the {@link RundeckExecution} at the origin of the Rundeck
+ * notification).<br>
+ * Only the few fields needed for describing the execution are stored with the build : the environment variables are
+ * computed once, when the cause is created, kept by the cause while the build is queued (so that they survive a
+ * restart), and then moved to the {@link RundeckExecutionEnvironmentContributingAction} of the build.
+ *
  * @author Vincent Behar
  */
 public class RundeckCause extends Cause {
 
-    private static final Pattern ARG_STRING_PATTERN = Pattern.compile("(\\S+)\\s\"?(.+)");
+    /** Only set for the builds recorded by previous versions, see {@link #readResolve()} */
+    private RundeckExecution execution;
 
-    private final RundeckExecution execution;
+    private Long executionId;
+
+    private String executionUrl;
+
+    private String jobProject;
+
+    private String jobFullName;
+
+    /**
+     * Names and values of the environment variables for the build, only set while the build is queued : moved to the
+     * action of the build by {@link #onAddedTo(AbstractBuild)}
+     */
+    private String[] variables;
 
     /**
      * Instantiate a new cause for the given execution
-     * 
+     *
      * @param execution at the origin of the Rundeck notification
      */
     public RundeckCause(RundeckExecution execution) {
         super();
-        this.execution = execution;
+        if (execution != null) {
+            this.executionId = execution.getId();
+            this.executionUrl = execution.getUrl();
+            if (execution.getJob() != null) {
+                this.jobProject = execution.getJob().getProject();
+                this.jobFullName = execution.getJob().getFullName();
+            }
+            this.variables = toVariables(buildEnvironment(execution));
+        }
+    }
+
+    /**
+     * Convert the causes recorded by previous versions (with the whole execution) to the compact form. The variables
+     * are kept for the builds still queued : {@link #onAddedTo(AbstractBuild)} moves them to the action of the build.
+     */
+    private Object readResolve() {
+        if (execution != null) {
+            return new RundeckCause(execution);
+        }
+        return this;
     }
 
     @Override
     public String getShortDescription() {
         StringBuilder description = new StringBuilder();
-        if (execution != null) {
+        if (executionUrl != null || executionId != null) {
             description.append("Started by <a href=\"");
-            description.append(execution.getUrl());
+            description.append(executionUrl);
             description.append("\">Rundeck Execution #");
-            description.append(execution.getId());
+            description.append(executionId);
             description.append("</a>");
-            if (execution.getJob() != null) {
+            if (jobProject != null || jobFullName != null) {
                 description.append(" [");
-                description.append(execution.getJob().getProject());
+                description.append(jobProject);
                 description.append("] ");
-                description.append(execution.getJob().getFullName());
+                description.append(jobFullName);
             }
         } else {
             description.append("Started by a Rundeck Notification");
@@ -56,14 +91,19 @@ public class RundeckCause extends Cause {
     @Override
     public void onAddedTo(AbstractBuild build) {
         super.onAddedTo(build);
-        build.addAction(new RundeckExecutionEnvironmentContributingAction(execution));
+        if (variables != null) {
+            build.addAction(new RundeckExecutionEnvironmentContributingAction(executionId, executionUrl, variables));
+            // only stored once with the build, by the action
+            variables = null;
+        }
     }
 
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((execution == null) ? 0 : execution.hashCode());
+        result = prime * result + ((executionId == null) ? 0 : executionId.hashCode());
+        result = prime * result + ((executionUrl == null) ? 0 : executionUrl.hashCode());
         return result;
     }
 
@@ -76,89 +116,136 @@ public class RundeckCause extends Cause {
         if (getClass() != obj.getClass())
             return false;
         RundeckCause other = (RundeckCause) obj;
-        if (execution == null) {
-            if (other.execution != null)
-                return false;
-        } else if (!execution.equals(other.execution))
-            return false;
-        return true;
+        return StringUtils.equals(executionUrl, other.executionUrl)
+               && (executionId == null ? other.executionId == null : executionId.equals(other.executionId))
+               && StringUtils.equals(jobProject, other.jobProject)
+               && StringUtils.equals(jobFullName, other.jobFullName);
     }
 
     @Override
     public String toString() {
-        return "RundeckCause [execution=" + execution + "]";
+        return "RundeckCause [executionId=" + executionId + ", executionUrl=" + executionUrl + "]";
+    }
+
+    /**
+     * Compute the environment variables describing the given execution
+     *
+     * @param execution at the origin of the Rundeck notification
+     * @return the variables, by name
+     */
+    static Map<String, String> buildEnvironment(RundeckExecution execution) {
+        Map<String, String> env = new LinkedHashMap<String, String>();
+        if (execution.getJob() != null) {
+            env.put("RDECK_JOB_ID", String.valueOf(execution.getJob().getId()));
+            env.put("RDECK_JOB_NAME", String.valueOf(execution.getJob().getName()));
+            env.put("RDECK_JOB_GROUP", String.valueOf(execution.getJob().getGroup()));
+            env.put("RDECK_JOB_DESCRIPTION", String.valueOf(execution.getJob().getDescription()));
+            env.put("RDECK_PROJECT", String.valueOf(execution.getJob().getProject()));
+        }
+        env.put("RDECK_EXEC_ID", String.valueOf(execution.getId()));
+        env.put("RDECK_EXEC_STATUS", String.valueOf(execution.getStatus()));
+        env.put("RDECK_EXEC_STARTED_BY", String.valueOf(execution.getStartedBy()));
+        env.put("RDECK_EXEC_STARTED_AT", String.valueOf(execution.getStartedAt()));
+        env.put("RDECK_EXEC_ENDED_AT", String.valueOf(execution.getEndedAt()));
+        env.put("RDECK_EXEC_ABORTED_BY", String.valueOf(execution.getAbortedBy()));
+        env.put("RDECK_EXEC_DURATION_MILLIS", String.valueOf(execution.getDurationInMillis()));
+        env.put("RDECK_EXEC_DURATION_SECONDS", String.valueOf(execution.getDurationInSeconds()));
+        env.put("RDECK_EXEC_DURATION", String.valueOf(execution.getDuration()));
+        env.put("RDECK_EXEC_SHORT_DURATION", String.valueOf(execution.getShortDuration()));
+        env.put("RDECK_EXEC_URL", String.valueOf(execution.getUrl()));
+        env.put("RDECK_EXEC_DESCRIPTION", String.valueOf(execution.getDescription()));
+
+        for (Map.Entry<String, String> option : ArgStringTokenizer.parse(execution.getArgstring()).entrySet()) {
+            env.put("RDECK_EXEC_ARG_" + option.getKey(), option.getValue());
+        }
+        return env;
+    }
+
+    /**
+     * @param environment variables, by name - may be null
+     * @return the names and values of the variables, as a flat array : name1, value1, name2, value2... - or null
+     */
+    private static String[] toVariables(Map<String, String> environment) {
+        if (environment == null) {
+            return null;
+        }
+        String[] variables = new String[environment.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> variable : environment.entrySet()) {
+            variables[i++] = variable.getKey();
+            variables[i++] = variable.getValue();
+        }
+        return variables;
     }
 
     /**
      * {@link EnvironmentContributingAction} used to make information about the {@link RundeckExecution} available to
-     * the build (as environment variables)
+     * the build (as environment variables). The variables are stored as a flat array of names and values.
      */
     public static class RundeckExecutionEnvironmentContributingAction implements EnvironmentContributingAction {
 
-        private final RundeckExecution execution;
+        /** Only set for the builds recorded by previous versions, see {@link #readResolve()} */
+        private RundeckExecution execution;
+
+        private Long executionId;
+
+        private String executionUrl;
+
+        /** Names and values of the environment variables : name1, value1, name2, value2... */
+        private String[] variables;
 
         /**
          * Instantiate a new action, which will use the data from the given execution
-         * 
+         *
          * @param execution at the origin of the Rundeck notification
          */
         public RundeckExecutionEnvironmentContributingAction(RundeckExecution execution) {
+            this(execution != null ? execution.getId() : null, execution != null ? execution.getUrl() : null,
+                 execution != null ? toVariables(buildEnvironment(execution)) : null);
+        }
+
+        /**
+         * Instantiate a new action, with precomputed variables
+         *
+         * @param executionId ID of the execution at the origin of the Rundeck notification
+         * @param executionUrl URL of the execution
+         * @param variables names and values of the variables for the build : name1, value1... - may be null
+         */
+        RundeckExecutionEnvironmentContributingAction(Long executionId, String executionUrl, String[] variables) {
             super();
-            this.execution = execution;
+            this.executionId = executionId;
+            this.executionUrl = executionUrl;
+            this.variables = variables;
         }
 
-        public void buildEnvVars(AbstractBuild<?, ?> build, EnvVars env) {
+        /**
+         * Convert the actions recorded by previous versions (with the whole execution) to the compact form
+         */
+        private Object readResolve() {
             if (execution != null) {
-                if (execution.getJob() != null) {
-                    env.put("RDECK_JOB_ID", String.valueOf(execution.getJob().getId()));
-                    env.put("RDECK_JOB_NAME", String.valueOf(execution.getJob().getName()));
-                    env.put("RDECK_JOB_GROUP", String.valueOf(execution.getJob().getGroup()));
-                    env.put("RDECK_JOB_DESCRIPTION", String.valueOf(execution.getJob().getDescription()));
-                    env.put("RDECK_PROJECT", String.valueOf(execution.getJob().getProject()));
-                }
-                env.put("RDECK_EXEC_ID", String.valueOf(execution.getId()));
-                env.put("RDECK_EXEC_STATUS", String.valueOf(execution.getStatus()));
-                env.put("RDECK_EXEC_STARTED_BY", String.valueOf(execution.getStartedBy()));
-                env.put("RDECK_EXEC_STARTED_AT", String.valueOf(execution.getStartedAt()));
-                env.put("RDECK_EXEC_ENDED_AT", String.valueOf(execution.getEndedAt()));
-                env.put("RDECK_EXEC_ABORTED_BY", String.valueOf(execution.getAbortedBy()));
-                env.put("RDECK_EXEC_DURATION_MILLIS", String.valueOf(execution.getDurationInMillis()));
-                env.put("RDECK_EXEC_DURATION_SECONDS", String.valueOf(execution.getDurationInSeconds()));
-                env.put("RDECK_EXEC_DURATION", String.valueOf(execution.getDuration()));
-                env.put("RDECK_EXEC_SHORT_DURATION", String.valueOf(execution.getShortDuration()));
-                env.put("RDECK_EXEC_URL", String.valueOf(execution.getUrl()));
-                env.put("RDECK_EXEC_DESCRIPTION", String.valueOf(execution.getDescription()));
-
-                if ( StringUtils.isNotEmpty(execution.getArgstring())) {
-                    // Split argstring around hyphens at the beginning or a combination of whitespace and hyphen
-                    String[] args = execution.getArgstring().split("^-|\\s-");
-                    for (int i = 1; i < args.length; i++) {
-                        final Matcher matcher = ARG_STRING_PATTERN.matcher(args[i]);
-                        if (matcher.matches()) {
-                            final String key = matcher.group(1);
-                            String value = StringUtils.trim(matcher.group(2));
-                            if (value.endsWith("\"")) {
-                                value = value.substring(0, value.length()-1);
-                            }
-
-                            env.put("RDECK_EXEC_ARG_" + key, value);
-                        }
-                    }
-                }
+                return new RundeckExecutionEnvironmentContributingAction(execution);
+            }
+            return this;
+        }
 
+        public void buildEnvVars(AbstractBuild<?, ?> build, EnvVars env) {
+            if (variables != null) {
+                for (int i = 0; i + 1 < variables.length; i += 2) {
+                    env.put(variables[i], variables[i + 1]);
+                }
             }
         }
 
         public String getDisplayName() {
-            return execution != null ? "Started by Rundeck Execution #" + execution.getId() : null;
+            return variables != null ? "Started by Rundeck Execution #" + executionId : null;
         }
 
         public String getIconFileName() {
-            return execution != null ? "/plugin/rundeck/images/rundeck_24x24.png" : null;
+            return variables != null ? "/plugin/rundeck/images/rundeck_24x24.png" : null;
         }
 
         public String getUrlName() {
-            return execution != null ? execution.getUrl() : null;
+            return variables != null ? executionUrl : null;
         }
     }
 
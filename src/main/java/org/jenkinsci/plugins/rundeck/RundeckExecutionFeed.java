@@ -0,0 +1,182 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.XmlFile;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+import org.rundeck.api.domain.PagedResults;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.query.ExecutionQuery;
+
+/**
+ * Incremental feed of the completed Rundeck executions, for the Rundeck projects which can't send WebHook notifications
+ * to Jenkins : for each project, we only ask Rundeck for the executions completed since a high-water mark (the end
+ * date of the last execution seen), in batches, so that the cost of a poll depends on the number of new executions, not
+ * on the number of jobs or triggers.<br>
+ * The high-water marks are persisted, so that the executions completed while Jenkins was stopped are not missed.
+ * The first poll of a project only sets its mark : we don't replay its history.
+ */
+public class RundeckExecutionFeed {
+
+    private static final Logger LOGGER = Logger.getLogger(RundeckExecutionFeed.class.getName());
+
+    /** Number of executions asked to Rundeck in a single request */
+    static final int BATCH_SIZE = 100;
+
+    /** High-water mark of each Rundeck project */
+    private final Map<String, HighWaterMark> marks = new HashMap<String, HighWaterMark>();
+
+    /** File in which the marks are persisted, or null if they are only kept in memory */
+    private final transient XmlFile file;
+
+    /**
+     * @param file in which the high-water marks are persisted (loaded if it exists) - may be null
+     */
+    public RundeckExecutionFeed(File file) {
+        this.file = file != null ? new XmlFile(file) : null;
+        if (this.file != null && this.file.exists()) {
+            try {
+                this.file.unmarshal(this);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to load the Rundeck execution feed state from " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Fetch the executions of the given project completed since the last poll
+     *
+     * @param rundeck client used for talking to the Rundeck API
+     * @param project name of the Rundeck project
+     * @return the new executions, sorted by end date
+     * @throws RundeckApiException in case of error while talking to Rundeck
+     */
+    public List<RundeckExecution> poll(RundeckClient rundeck, String project) throws RundeckApiException {
+        HighWaterMark mark;
+        synchronized (this) {
+            mark = marks.get(project);
+        }
+        if (mark == null) {
+            // first poll : start from now
+            start(project, System.currentTimeMillis());
+            return new ArrayList<RundeckExecution>();
+        }
+
+        ExecutionQuery query = ExecutionQuery.builder().project(project).begin(new Date(mark.time)).build();
+        List<RundeckExecution> executions = new ArrayList<RundeckExecution>();
+        for (long offset = 0;; offset += BATCH_SIZE) {
+            PagedResults<RundeckExecution> page = rundeck.getExecutions(query, Long.valueOf(BATCH_SIZE), offset);
+            executions.addAll(page.getResults());
+            if (page.getResults().size() < BATCH_SIZE) {
+                break;
+            }
+        }
+        return update(project, executions);
+    }
+
+    /**
+     * Set the mark of the given project : only the executions completed from this date will be returned
+     *
+     * @param time in milliseconds
+     */
+    synchronized void start(String project, long time) {
+        marks.put(project, new HighWaterMark(time));
+        save();
+    }
+
+    /**
+     * Keep the executions after the mark of the given project, and move its mark to the last one
+     *
+     * @param project which has already been started (see {@link #start(String, long)})
+     * @param executions returned by Rundeck for the project (in any order, may include executions already seen)
+     * @return the new executions, sorted by end date
+     */
+    synchronized List<RundeckExecution> update(String project, List<RundeckExecution> executions) {
+        HighWaterMark mark = marks.get(project);
+        List<RundeckExecution> result = new ArrayList<RundeckExecution>();
+        for (RundeckExecution execution : executions) {
+            if (execution.getEndedAt() != null && mark.isNew(execution)) {
+                result.add(execution);
+            }
+        }
+        Collections.sort(result, new Comparator<RundeckExecution>() {
+
+            public int compare(RundeckExecution e1, RundeckExecution e2) {
+                return e1.getEndedAt().compareTo(e2.getEndedAt());
+            }
+        });
+
+        if (result.isEmpty()) {
+            return result;
+        }
+        long time = result.get(result.size() - 1).getEndedAt().getTime();
+        HighWaterMark newMark = new HighWaterMark(time);
+        if (time == mark.time) {
+            newMark.ids.addAll(mark.ids);
+        }
+        for (RundeckExecution execution : result) {
+            if (execution.getEndedAt().getTime() == time) {
+                newMark.ids.add(execution.getId());
+            }
+        }
+        marks.put(project, newMark);
+        save();
+        return result;
+    }
+
+    /**
+     * @param project name of the Rundeck project
+     * @return the end date (in milliseconds) of the last execution seen for the project, or null if never polled
+     */
+    public synchronized Long getHighWaterMark(String project) {
+        HighWaterMark mark = marks.get(project);
+        return mark != null ? mark.time : null;
+    }
+
+    private void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.write(this);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save the Rundeck execution feed state to " + file, e);
+        }
+    }
+
+    /**
+     * End date of the last execution seen for a project, with the IDs of the executions which ended at this exact date
+     * (Rundeck includes them again in the next poll)
+     */
+    private static class HighWaterMark {
+
+        private final long time;
+
+        private final Set<Long> ids = new HashSet<Long>();
+
+        private HighWaterMark(long time) {
+            this.time = time;
+        }
+
+        /**
+         * @return true if the given (completed) execution has not been seen yet
+         */
+        private boolean isNew(RundeckExecution execution) {
+            long endedAt = execution.getEndedAt().getTime();
+            return endedAt > time || (endedAt == time && !ids.contains(execution.getId()));
+        }
+    }
+
+}
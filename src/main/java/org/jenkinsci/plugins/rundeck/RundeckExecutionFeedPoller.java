@@ -0,0 +1,70 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Hudson;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.jenkinsci.plugins.rundeck.RundeckNotifier.RundeckDescriptor;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+import org.rundeck.api.domain.RundeckExecution;
+
+/**
+ * Periodically polls the {@link RundeckExecutionFeed} of the Rundeck projects configured for polling, and dispatches
+ * the new executions exactly like WebHook notifications (see {@link WebHookListener}) : this is how
+ * {@link RundeckTrigger}s are fired for the Rundeck projects which can't reach Jenkins over HTTP.
+ */
+@Extension
+public class RundeckExecutionFeedPoller extends AsyncPeriodicWork {
+
+    public RundeckExecutionFeedPoller() {
+        super("Rundeck execution feed poll");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return 30 * 1000;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        RundeckDescriptor descriptor = Hudson.getInstance().getDescriptorByType(RundeckDescriptor.class);
+        RundeckClient rundeck = descriptor != null ? descriptor.getRundeckInstance() : null;
+        if (rundeck == null || descriptor.getPolledProjectList().isEmpty()) {
+            return;
+        }
+        RundeckHealthTracker health = descriptor.getHealthTracker();
+        for (String project : descriptor.getPolledProjectList()) {
+            if (!health.allowRequest()) {
+                listener.getLogger().println("Rundeck is unavailable, skipping the poll");
+                return;
+            }
+            List<RundeckExecution> polled;
+            try {
+                polled = descriptor.getExecutionFeed().poll(rundeck, project);
+                health.recordSuccess();
+            } catch (RundeckApiException e) {
+                health.recordFailure(e);
+                listener.getLogger().println("Failed to poll the executions of the Rundeck project " + project + " : "
+                                             + e.getMessage());
+                continue;
+            }
+
+            // executions may also be notified by a WebHook
+            List<RundeckExecution> executions = new ArrayList<RundeckExecution>(polled.size());
+            for (RundeckExecution execution : polled) {
+                if (descriptor.getDedupWindow().markSeen(execution)) {
+                    executions.add(execution);
+                }
+            }
+            if (!executions.isEmpty()) {
+                WebHookListener.dispatch(executions);
+            }
+            listener.getLogger().println("Found " + executions.size() + " new execution(s) in the Rundeck project "
+                                         + project);
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.domain.RundeckJob;
+
+/**
+ * Plugin-wide service that keeps track of the Rundeck executions our builds are waiting for, and polls Rundeck for their
+ * status in batches : on each tick, we ask for the running executions once per Rundeck project having a due execution,
+ * and only fetch the details of the executions which are no longer running. Each execution is polled according to its
+ * own {@link PollSchedule}, based on the expected duration of its job. Failed polls are retried with a backoff, and an
+ * execution only fails after {@link #MAX_CONSECUTIVE_ERRORS} consecutive errors. Nothing is polled while the circuit of
+ * the {@link RundeckHealthTracker} is open.<br>
+ * Executions are also checked as soon as we receive a Rundeck WebHook notification for them (see
+ * {@link WebHookListener}) : in this case, polling is only a slow safety net.
+ */
+public class RundeckExecutionPoller {
+
+    private static final Logger LOGGER = Logger.getLogger(RundeckExecutionPoller.class.getName());
+
+    /** Delay between 2 poll ticks, in milliseconds : executions are only polled when their schedule is due */
+    private static final long TICK_INTERVAL = 500;
+
+    /** Default minimum delay between 2 polls of the same execution, in milliseconds */
+    public static final long DEFAULT_MIN_POLL_INTERVAL = 2000;
+
+    /** Default maximum delay between 2 polls of the same execution, in milliseconds */
+    public static final long DEFAULT_MAX_POLL_INTERVAL = 60000;
+
+    /** Number of consecutive failed polls after which the execution fails */
+    public static final int MAX_CONSECUTIVE_ERRORS = 5;
+
+    private final Map<Long, TrackedExecution> executions = new ConcurrentHashMap<Long, TrackedExecution>();
+
+    /** Durations of the successful executions we have seen, per job ID (smoothed average, in milliseconds) */
+    private final Map<String, Long> recordedDurations = new ConcurrentHashMap<String, Long>();
+
+    private volatile long minPollInterval = DEFAULT_MIN_POLL_INTERVAL;
+
+    private volatile long maxPollInterval = DEFAULT_MAX_POLL_INTERVAL;
+
+    /** Fixed delay between 2 polls when we rely on WebHook notifications, or null if we don't */
+    private volatile Long safetyNetPollInterval;
+
+    private final RundeckJobCatalog jobCatalog;
+
+    private final RundeckHealthTracker healthTracker;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile long lastPollRoundTrip = -1;
+
+    /**
+     * @param jobCatalog catalog used for finding the average duration of the jobs
+     * @param healthTracker updated with the result of each poll
+     */
+    public RundeckExecutionPoller(RundeckJobCatalog jobCatalog, RundeckHealthTracker healthTracker) {
+        this.jobCatalog = jobCatalog;
+        this.healthTracker = healthTracker;
+    }
+
+    /**
+     * Start tracking the given execution. The returned {@link TrackedExecution} will be completed as soon as the
+     * execution reaches a terminal state.
+     *
+     * @param rundeck client used for talking to the Rundeck API
+     * @param jobId ID of the Rundeck job, used for predicting the duration of the execution - may be null
+     * @param execution freshly triggered execution
+     * @return a handle the caller can wait on
+     */
+    public TrackedExecution track(RundeckClient rundeck, String jobId, RundeckExecution execution) {
+        long now = System.currentTimeMillis();
+        long startedAt = execution.getStartedAt() != null ? execution.getStartedAt().getTime() : now;
+        PollSchedule schedule;
+        if (safetyNetPollInterval != null) {
+            schedule = new PollSchedule(startedAt, null, safetyNetPollInterval, safetyNetPollInterval);
+        } else {
+            schedule = new PollSchedule(startedAt,
+                                        getExpectedDuration(jobId, execution),
+                                        minPollInterval,
+                                        maxPollInterval);
+        }
+        TrackedExecution tracked = new TrackedExecution(rundeck, jobId, execution, schedule);
+        if (!ExecutionStatus.RUNNING.equals(execution.getStatus())) {
+            tracked.complete(execution);
+            return tracked;
+        }
+        tracked.nextPollAt = now + schedule.nextDelay(now);
+        executions.put(execution.getId(), tracked);
+        ensureStarted();
+        return tracked;
+    }
+
+    /**
+     * Check the tracked execution matching the given notification (if any) right away, without waiting for the next
+     * poll. WebHook notifications are not authenticated : the notification is only a hint, the execution is completed
+     * with its status as returned by the Rundeck API.
+     *
+     * @param execution received from a Rundeck WebHook notification
+     * @return true if a tracked execution has been completed, false otherwise
+     */
+    public boolean onNotification(RundeckExecution execution) {
+        if (execution == null || execution.getId() == null
+            || ExecutionStatus.RUNNING.equals(execution.getStatus())) {
+            return false;
+        }
+        TrackedExecution tracked = executions.get(execution.getId());
+        if (tracked == null || !healthTracker.allowRequest()) {
+            return false;
+        }
+        RundeckExecution current;
+        try {
+            current = tracked.getRundeck().getExecution(tracked.getExecutionId());
+            healthTracker.recordSuccess();
+        } catch (RundeckApiException e) {
+            healthTracker.recordFailure(e);
+            LOGGER.log(Level.FINE, "Failed to check Rundeck execution #" + execution.getId(), e);
+            // the execution is still polled on its own schedule : a failed check must not count as a failed poll
+            return false;
+        }
+        return completeIfFinished(tracked, current);
+    }
+
+    /**
+     * Stop tracking the given execution (for example because the waiting build has been interrupted)
+     *
+     * @param tracked execution to forget about
+     */
+    public void untrack(TrackedExecution tracked) {
+        executions.remove(tracked.getExecutionId());
+    }
+
+    /**
+     * @return the number of executions currently tracked
+     */
+    public int getTrackedExecutionCount() {
+        return executions.size();
+    }
+
+    /**
+     * @return the duration of the last poll tick (all Rundeck calls included), in milliseconds - or -1 if we did not
+     *         poll yet
+     */
+    public long getLastPollRoundTrip() {
+        return lastPollRoundTrip;
+    }
+
+    /**
+     * Configure the bounds of the delay between 2 polls of the same execution. Only applies to executions tracked
+     * from now on.
+     *
+     * @param minPollInterval in milliseconds
+     * @param maxPollInterval in milliseconds
+     */
+    public void setPollIntervals(long minPollInterval, long maxPollInterval) {
+        this.minPollInterval = minPollInterval;
+        this.maxPollInterval = maxPollInterval;
+    }
+
+    /**
+     * Rely on WebHook notifications for completing the executions, and only poll them with the given fixed delay.
+     * Only applies to executions tracked from now on.
+     *
+     * @param safetyNetPollInterval in milliseconds, or null for polling according to the expected duration of the jobs
+     */
+    public void setSafetyNetPollInterval(Long safetyNetPollInterval) {
+        this.safetyNetPollInterval = safetyNetPollInterval;
+    }
+
+    /**
+     * Find how long an execution of the given job is expected to take : use the average duration provided by Rundeck
+     * (with the execution, or in the job catalog) if we have it, otherwise the durations we recorded ourselves.
+     *
+     * @return the expected duration in milliseconds, or null if unknown
+     */
+    private Long getExpectedDuration(String jobId, RundeckExecution execution) {
+        RundeckJob job = execution.getJob();
+        if (job == null || job.getAverageDuration() == null || job.getAverageDuration() <= 0) {
+            job = jobCatalog.find(jobId);
+        }
+        if (job != null && job.getAverageDuration() != null && job.getAverageDuration() > 0) {
+            return job.getAverageDuration();
+        }
+        return jobId != null ? recordedDurations.get(jobId) : null;
+    }
+
+    private void recordDuration(TrackedExecution tracked, RundeckExecution execution) {
+        if (tracked.getJobId() == null || !ExecutionStatus.SUCCEEDED.equals(execution.getStatus())
+            || execution.getDurationInMillis() == null) {
+            return;
+        }
+        Long previous = recordedDurations.get(tracked.getJobId());
+        long duration = execution.getDurationInMillis();
+        recordedDurations.put(tracked.getJobId(), previous != null ? (3 * previous + duration) / 4 : duration);
+    }
+
+    private synchronized void ensureStarted() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Rundeck execution poller");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+
+            public void run() {
+                try {
+                    poll();
+                } catch (Throwable t) {
+                    // anything thrown out of here would cancel all the following ticks, and the waiting builds would
+                    // wait forever
+                    LOGGER.log(Level.WARNING, "Failed to poll Rundeck executions", t);
+                }
+            }
+        }, TICK_INTERVAL, TICK_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop polling (for example because Jenkins is shutting down). The executions still tracked are not completed, and
+     * polling starts again if a new execution is tracked.
+     */
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Poll Rundeck for all the tracked executions which are due
+     */
+    void poll() {
+        if (executions.isEmpty()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        // group by Rundeck project, so that we can ask for all running executions of a project in one call
+        Map<String, List<TrackedExecution>> byProject = new HashMap<String, List<TrackedExecution>>();
+        Set<String> dueProjects = new HashSet<String>();
+        List<TrackedExecution> dueWithoutProject = new ArrayList<TrackedExecution>();
+        for (TrackedExecution tracked : executions.values()) {
+            String project = tracked.getProject();
+            boolean due = tracked.nextPollAt <= start;
+            if (StringUtils.isBlank(project)) {
+                if (due) {
+                    dueWithoutProject.add(tracked);
+                }
+                continue;
+            }
+            if (due) {
+                dueProjects.add(project);
+            }
+            List<TrackedExecution> group = byProject.get(project);
+            if (group == null) {
+                group = new ArrayList<TrackedExecution>();
+                byProject.put(project, group);
+            }
+            group.add(tracked);
+        }
+        if (dueProjects.isEmpty() && dueWithoutProject.isEmpty()) {
+            return;
+        }
+        if (!healthTracker.allowRequest()) {
+            // Rundeck is down : the executions stay due, and are polled as soon as the circuit lets us through
+            return;
+        }
+
+        for (TrackedExecution tracked : dueWithoutProject) {
+            refresh(tracked, start);
+        }
+        for (Map.Entry<String, List<TrackedExecution>> entry : byProject.entrySet()) {
+            if (!dueProjects.contains(entry.getKey())) {
+                continue;
+            }
+            List<TrackedExecution> group = entry.getValue();
+            Set<Long> runningIds = new HashSet<Long>();
+            try {
+                for (RundeckExecution running : group.get(0).getRundeck().getRunningExecutions(entry.getKey())) {
+                    runningIds.add(running.getId());
+                }
+                healthTracker.recordSuccess();
+            } catch (RundeckApiException e) {
+                healthTracker.recordFailure(e);
+                LOGGER.log(Level.FINE, "Failed to list running executions of project " + entry.getKey(), e);
+                for (TrackedExecution tracked : group) {
+                    if (tracked.nextPollAt <= start) {
+                        retryLater(tracked, start, e);
+                    }
+                }
+                continue;
+            }
+            for (TrackedExecution tracked : group) {
+                if (!runningIds.contains(tracked.getExecutionId())) {
+                    refresh(tracked, start);
+                } else if (tracked.nextPollAt <= start) {
+                    tracked.reschedule(start);
+                }
+            }
+        }
+
+        lastPollRoundTrip = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Fetch the details of the given execution, and complete it if it is no longer running
+     */
+    private void refresh(TrackedExecution tracked, long now) {
+        RundeckExecution execution;
+        try {
+            execution = tracked.getRundeck().getExecution(tracked.getExecutionId());
+            healthTracker.recordSuccess();
+        } catch (RundeckApiException e) {
+            healthTracker.recordFailure(e);
+            LOGGER.log(Level.FINE, "Failed to poll Rundeck execution #" + tracked.getExecutionId(), e);
+            retryLater(tracked, now, e);
+            return;
+        }
+        if (!completeIfFinished(tracked, execution)) {
+            tracked.reschedule(now);
+        }
+    }
+
+    /**
+     * Poll the given execution again after a backoff delay, or fail it after too many consecutive errors
+     */
+    private void retryLater(TrackedExecution tracked, long now, RundeckApiException error) {
+        if (tracked.getFailedPolls() + 1 < MAX_CONSECUTIVE_ERRORS) {
+            tracked.retryLater(now);
+        } else if (executions.remove(tracked.getExecutionId()) != null) {
+            tracked.fail(error);
+        }
+    }
+
+    /**
+     * @param tracked execution
+     * @param execution current state of the execution, as returned by the Rundeck API
+     * @return true if the execution is finished and we completed it, false if it is still running (or has already been
+     *         completed in the meantime)
+     */
+    private boolean completeIfFinished(TrackedExecution tracked, RundeckExecution execution) {
+        if (execution == null || ExecutionStatus.RUNNING.equals(execution.getStatus())) {
+            return false;
+        }
+        // may be completed concurrently by the poller and by a notification : only once
+        if (executions.remove(tracked.getExecutionId()) == null) {
+            return false;
+        }
+        recordDuration(tracked, execution);
+        tracked.complete(execution);
+        return true;
+    }
+
+    /**
+     * An execution tracked by the {@link RundeckExecutionPoller}, which builds can wait on.
+     */
+    public static class TrackedExecution {
+
+        private final RundeckClient rundeck;
+
+        private final String jobId;
+
+        private final RundeckExecution triggeredExecution;
+
+        private final PollSchedule schedule;
+
+        private volatile long nextPollAt;
+
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        private final List<ExecutionListener> listeners = new ArrayList<ExecutionListener>();
+
+        private volatile RundeckExecution execution;
+
+        private volatile RundeckApiException error;
+
+        private TrackedExecution(RundeckClient rundeck, String jobId, RundeckExecution execution,
+                PollSchedule schedule) {
+            this.rundeck = rundeck;
+            this.jobId = jobId;
+            this.triggeredExecution = execution;
+            this.execution = execution;
+            this.schedule = schedule;
+        }
+
+        /**
+         * Wait for the execution to reach a terminal state
+         *
+         * @return the finished execution
+         * @throws InterruptedException if the current thread is interrupted while waiting
+         * @throws RundeckApiException if we failed to get the status of the execution from Rundeck
+         */
+        public RundeckExecution await() throws InterruptedException, RundeckApiException {
+            finished.await();
+            if (error != null) {
+                throw error;
+            }
+            return execution;
+        }
+
+        /**
+         * Wait for the execution to reach a terminal state, at most for the given time
+         *
+         * @param timeout in milliseconds
+         * @return true if the execution is finished, false if the timeout elapsed
+         * @throws InterruptedException if the current thread is interrupted while waiting
+         */
+        public boolean await(long timeout) throws InterruptedException {
+            return finished.await(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Register a listener which will be notified (from the poller thread) once the execution reaches a terminal
+         * state. If the execution is already finished, the listener is notified right away.
+         *
+         * @param listener to notify
+         */
+        public void addListener(ExecutionListener listener) {
+            synchronized (listeners) {
+                if (finished.getCount() > 0) {
+                    listeners.add(listener);
+                    return;
+                }
+            }
+            notifyListener(listener);
+        }
+
+        /**
+         * @return the last known state of the execution
+         */
+        public RundeckExecution getExecution() {
+            return execution;
+        }
+
+        public Long getExecutionId() {
+            return triggeredExecution.getId();
+        }
+
+        public String getJobId() {
+            return jobId;
+        }
+
+        /**
+         * @return the expected duration of the execution in milliseconds, or null if unknown
+         */
+        public Long getExpectedDuration() {
+            return schedule.getExpectedDuration();
+        }
+
+        private void reschedule(long now) {
+            nextPollAt = now + schedule.nextDelay(now);
+        }
+
+        private void retryLater(long now) {
+            nextPollAt = now + schedule.nextRetryDelay();
+        }
+
+        private int getFailedPolls() {
+            return schedule.getFailedPolls();
+        }
+
+        private String getProject() {
+            return triggeredExecution.getJob() != null ? triggeredExecution.getJob().getProject() : null;
+        }
+
+        private RundeckClient getRundeck() {
+            return rundeck;
+        }
+
+        private void complete(RundeckExecution execution) {
+            this.execution = execution;
+            finish();
+        }
+
+        private void fail(RundeckApiException error) {
+            this.error = error;
+            finish();
+        }
+
+        private void finish() {
+            List<ExecutionListener> toNotify;
+            synchronized (listeners) {
+                finished.countDown();
+                toNotify = new ArrayList<ExecutionListener>(listeners);
+                listeners.clear();
+            }
+            for (ExecutionListener listener : toNotify) {
+                notifyListener(listener);
+            }
+        }
+
+        private void notifyListener(ExecutionListener listener) {
+            try {
+                if (error != null) {
+                    listener.onError(error);
+                } else {
+                    listener.onFinished(execution);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to notify listener of Rundeck execution #" + getExecutionId(), e);
+            }
+        }
+    }
+
+    /**
+     * Listener notified when a {@link TrackedExecution} reaches a terminal state
+     */
+    public interface ExecutionListener {
+
+        /**
+         * @param execution in its terminal state
+         */
+        void onFinished(RundeckExecution execution);
+
+        /**
+         * @param error received while getting the status of the execution from Rundeck
+         */
+        void onError(RundeckApiException error);
+    }
+}
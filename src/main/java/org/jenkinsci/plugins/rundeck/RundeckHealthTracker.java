@@ -0,0 +1,151 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.IOException;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckApiException.RundeckApiAuthException;
+
+/**
+ * Last known health of the Rundeck instance, updated passively from the results of the real API calls (instead of
+ * pinging Rundeck before each one), acting as a circuit breaker : after {@link #getFailureThreshold()} consecutive
+ * failures, the circuit is opened and calls fail fast, until a single probe call is let through (half-open state) to
+ * decide if the circuit can be closed again.
+ */
+public class RundeckHealthTracker {
+
+    /** Default number of consecutive failures after which the circuit is opened */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+    /** Default delay before letting a probe call through an open circuit, in milliseconds */
+    public static final long DEFAULT_OPEN_DURATION = 30 * 1000;
+
+    public static enum State {
+        /** Rundeck is healthy, all calls are allowed */
+        CLOSED,
+        /** Rundeck is failing, calls fail fast */
+        OPEN,
+        /** A probe call is in progress, other calls fail fast until we know its result */
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openDuration;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures = 0;
+
+    /** Date at which we will let a probe call through, when the circuit is open (or half-open) */
+    private long retryAt = 0;
+
+    private long lastSuccess = 0;
+
+    private long lastFailure = 0;
+
+    private String lastFailureMessage;
+
+    public RundeckHealthTracker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_DURATION);
+    }
+
+    /**
+     * @param failureThreshold number of consecutive failures after which the circuit is opened
+     * @param openDuration delay before letting a probe call through an open circuit, in milliseconds
+     */
+    public RundeckHealthTracker(int failureThreshold, long openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Check if we may call Rundeck. When the circuit is open and the delay has elapsed, the caller is the (only) probe :
+     * it must report the result of its call with {@link #recordSuccess()} or {@link #recordFailure(RundeckApiException)}.
+     * If it never does, another probe is let through after the same delay.
+     *
+     * @return true if we may call Rundeck, false if we should fail fast
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now < retryAt) {
+            return false;
+        }
+        state = State.HALF_OPEN;
+        retryAt = now + openDuration;
+        return true;
+    }
+
+    /**
+     * A call to Rundeck succeeded : close the circuit
+     */
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        lastSuccess = System.currentTimeMillis();
+    }
+
+    /**
+     * A call to Rundeck failed : open the circuit if the probe failed, or after too many consecutive failures.
+     * Authentication errors and errors reported by Rundeck itself (unknown job, and so on) prove that Rundeck is
+     * alive, so they count as a success : only errors caused by an I/O failure (connection refused, timeout, and so on)
+     * count as a failure.
+     *
+     * @param error returned by the Rundeck API
+     */
+    public synchronized void recordFailure(RundeckApiException error) {
+        if (error instanceof RundeckApiAuthException || !(error.getCause() instanceof IOException)) {
+            recordSuccess();
+            return;
+        }
+        consecutiveFailures++;
+        lastFailure = System.currentTimeMillis();
+        lastFailureMessage = error.getMessage();
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            retryAt = lastFailure + openDuration;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return the number of seconds before the next probe call, or 0 if the circuit is closed
+     */
+    public synchronized long getRetryIn() {
+        if (state == State.CLOSED) {
+            return 0;
+        }
+        return Math.max(0, (retryAt - System.currentTimeMillis()) / 1000);
+    }
+
+    /**
+     * @return the date of the last successful call, in milliseconds, or 0 if none
+     */
+    public synchronized long getLastSuccess() {
+        return lastSuccess;
+    }
+
+    /**
+     * @return the date of the last failed call, in milliseconds, or 0 if none
+     */
+    public synchronized long getLastFailure() {
+        return lastFailure;
+    }
+
+    public synchronized String getLastFailureMessage() {
+        return lastFailureMessage;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+}
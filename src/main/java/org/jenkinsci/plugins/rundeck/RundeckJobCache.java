@@ -0,0 +1,232 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.rundeck.RundeckNotifier.RundeckDescriptor;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+import org.rundeck.api.domain.RundeckJob;
+
+/**
+ * Bounded (LRU) cache of the {@link RundeckJob} found for a job identifier (either a UUID or a "project:group/name"
+ * reference), with a time-to-live on each entry. Expired entries are kept (until evicted) so that they can still be
+ * served while being reloaded in the background, see {@link #getOrRefreshAsync(String, RundeckClient)}.
+ */
+public class RundeckJobCache {
+
+    private static final Logger LOGGER = Logger.getLogger(RundeckJobCache.class.getName());
+
+    /** Default time-to-live of an entry, in milliseconds */
+    public static final long DEFAULT_TTL = 10 * 60 * 1000;
+
+    /** Default maximum number of entries */
+    public static final int DEFAULT_MAX_SIZE = 500;
+
+    private final long ttl;
+
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /** Identifiers currently being reloaded in the background */
+    private final Set<String> refreshing = Collections.synchronizedSet(new HashSet<String>());
+
+    private ExecutorService refreshExecutor;
+
+    public RundeckJobCache() {
+        this(DEFAULT_TTL, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param ttl time-to-live of an entry, in milliseconds
+     * @param maxSize maximum number of entries, the least recently used ones are evicted first
+     */
+    public RundeckJobCache(long ttl, final int maxSize) {
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Find the {@link RundeckJob} with the given identifier, from the cache if we have a fresh entry, or using the
+     * Rundeck API otherwise (see {@link RundeckDescriptor#findJob(String, RundeckClient)}).
+     *
+     * @param jobIdentifier either a simple ID, an UUID or a reference (project:group/name)
+     * @param rundeck client used for talking to the Rundeck API
+     * @return the {@link RundeckJob} found, or null if not found
+     * @throws RundeckApiException in case of error, or if no job with this ID
+     * @throws IllegalArgumentException if the identifier is not valid
+     */
+    public RundeckJob findJob(String jobIdentifier, RundeckClient rundeck) throws RundeckApiException,
+            IllegalArgumentException {
+        RundeckJob job = get(jobIdentifier);
+        if (job != null) {
+            hits.incrementAndGet();
+            return job;
+        }
+        misses.incrementAndGet();
+        job = RundeckDescriptor.findJob(jobIdentifier, rundeck);
+        if (job != null) {
+            put(jobIdentifier, job);
+        }
+        return job;
+    }
+
+    /**
+     * @param jobIdentifier either a simple ID, an UUID or a reference (project:group/name)
+     * @return the cached job if we have a fresh entry for this identifier, null otherwise
+     */
+    public synchronized RundeckJob get(String jobIdentifier) {
+        Entry entry = entries.get(jobIdentifier);
+        if (entry == null || entry.isExpired()) {
+            return null;
+        }
+        return entry.job;
+    }
+
+    /**
+     * Stale-while-revalidate lookup, which never talks to Rundeck on the calling thread : return the cached job (even
+     * if expired), and reload the entry in the background if it is missing or expired.
+     *
+     * @param jobIdentifier either a simple ID, an UUID or a reference (project:group/name)
+     * @param rundeck client used for talking to the Rundeck API
+     * @return the cached job (maybe outdated), or null if we don't know it (yet)
+     */
+    public RundeckJob getOrRefreshAsync(final String jobIdentifier, final RundeckClient rundeck) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(jobIdentifier);
+        }
+        if (entry != null && !entry.isExpired()) {
+            hits.incrementAndGet();
+            return entry.job;
+        }
+        misses.incrementAndGet();
+        if (rundeck != null && refreshing.add(jobIdentifier)) {
+            getRefreshExecutor().execute(new Runnable() {
+
+                public void run() {
+                    try {
+                        RundeckJob job = RundeckDescriptor.findJob(jobIdentifier, rundeck);
+                        // also remember unknown jobs, so that we don't look for them on each call
+                        put(jobIdentifier, job);
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.FINE, "Failed to reload Rundeck job " + jobIdentifier, e);
+                    } finally {
+                        refreshing.remove(jobIdentifier);
+                    }
+                }
+            });
+        }
+        return entry != null ? entry.job : null;
+    }
+
+    private synchronized ExecutorService getRefreshExecutor() {
+        if (refreshExecutor == null) {
+            refreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "Rundeck job cache refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return refreshExecutor;
+    }
+
+    /**
+     * Cache the given job for the given identifier
+     *
+     * @param jobIdentifier either a simple ID, an UUID or a reference (project:group/name)
+     * @param job found for this identifier, or null if there is no such job
+     */
+    public synchronized void put(String jobIdentifier, RundeckJob job) {
+        entries.put(jobIdentifier, new Entry(job, System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * Remove all the entries of the given job (for example when we receive a WebHook notification about it, which may
+     * mean that it has been renamed), so that they are resolved again through the Rundeck API on next use : its data
+     * is only used to find the entries, never cached.
+     *
+     * @param job as known by the caller - its ID and reference (project:group/name) may be outdated
+     */
+    public synchronized void invalidate(RundeckJob job) {
+        if (job == null) {
+            return;
+        }
+        if (StringUtils.isNotBlank(job.getProject())) {
+            entries.remove(job.getProject() + ":" + job.getFullName());
+        }
+        if (StringUtils.isBlank(job.getId())) {
+            return;
+        }
+        for (Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator(); it.hasNext();) {
+            Map.Entry<String, Entry> entry = it.next();
+            RundeckJob cached = entry.getValue().job;
+            if (entry.getKey().equals(job.getId()) || (cached != null && job.getId().equals(cached.getId()))) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * @param jobIdentifier identifier which should be resolved again on next use
+     */
+    public synchronized void invalidate(String jobIdentifier) {
+        entries.remove(jobIdentifier);
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static class Entry {
+
+        private final RundeckJob job;
+
+        private final long expiresAt;
+
+        private Entry(RundeckJob job, long expiresAt) {
+            this.job = job;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+}
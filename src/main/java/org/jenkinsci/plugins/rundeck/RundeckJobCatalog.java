@@ -0,0 +1,126 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.domain.RundeckProject;
+
+/**
+ * Local catalog of all the Rundeck jobs (UUID, project, group, name, average duration), filled with one bulk listing
+ * per Rundeck project and refreshed in the background (see {@link RundeckJobCatalogRefresher}), so that job identifiers
+ * can be resolved without talking to Rundeck.
+ */
+public class RundeckJobCatalog {
+
+    /** Current content of the catalog, replaced as a whole on each refresh */
+    private volatile Snapshot snapshot = new Snapshot(Collections.<String, RundeckJob> emptyMap(),
+                                                      Collections.<String, RundeckJob> emptyMap(),
+                                                      0);
+
+    /** Serializes the refreshes */
+    private final Object refreshLock = new Object();
+
+    /** Incremented each time the catalog is cleared, so that a running refresh does not bring back old jobs */
+    private int generation;
+
+    /**
+     * Reload the whole catalog, by listing the jobs of every Rundeck project.
+     *
+     * @param rundeck client used for talking to the Rundeck API
+     * @throws RundeckApiException in case of error while talking to the Rundeck API (the catalog is left untouched)
+     */
+    public void refresh(RundeckClient rundeck) throws RundeckApiException {
+        synchronized (refreshLock) {
+            int startGeneration;
+            synchronized (this) {
+                startGeneration = generation;
+            }
+            Map<String, RundeckJob> byId = new HashMap<String, RundeckJob>();
+            Map<String, RundeckJob> byReference = new HashMap<String, RundeckJob>();
+            for (RundeckProject project : rundeck.getProjects()) {
+                for (RundeckJob job : rundeck.getJobs(project.getName())) {
+                    if (job.getProject() == null) {
+                        job.setProject(project.getName());
+                    }
+                    byId.put(job.getId(), job);
+                    byReference.put(getReference(job), job);
+                }
+            }
+            synchronized (this) {
+                if (generation == startGeneration) {
+                    snapshot = new Snapshot(byId, byReference, System.currentTimeMillis());
+                }
+            }
+        }
+    }
+
+    /**
+     * Forget about all jobs (for example because we are now talking to another Rundeck instance)
+     */
+    public synchronized void clear() {
+        generation++;
+        snapshot = new Snapshot(Collections.<String, RundeckJob> emptyMap(),
+                                Collections.<String, RundeckJob> emptyMap(),
+                                0);
+    }
+
+    /**
+     * @param jobIdentifier either a job UUID, or a reference (project:group/name)
+     * @return the matching job, or null if it is not in the catalog
+     */
+    public RundeckJob find(String jobIdentifier) {
+        if (StringUtils.isBlank(jobIdentifier)) {
+            return null;
+        }
+        Snapshot current = snapshot;
+        RundeckJob job = current.byId.get(jobIdentifier);
+        return job != null ? job : current.byReference.get(jobIdentifier);
+    }
+
+    /**
+     * @return true once the catalog has been loaded
+     */
+    public boolean isLoaded() {
+        return snapshot.lastRefresh > 0;
+    }
+
+    /**
+     * @return the number of jobs in the catalog
+     */
+    public int getSize() {
+        return snapshot.byId.size();
+    }
+
+    /**
+     * @return the date of the last complete refresh, in milliseconds, or 0 if never loaded
+     */
+    public long getLastRefresh() {
+        return snapshot.lastRefresh;
+    }
+
+    /**
+     * @return the "project:group/name" reference of the given job
+     */
+    private static String getReference(RundeckJob job) {
+        return job.getProject() + ":" + job.getFullName();
+    }
+
+    private static class Snapshot {
+
+        private final Map<String, RundeckJob> byId;
+
+        private final Map<String, RundeckJob> byReference;
+
+        private final long lastRefresh;
+
+        private Snapshot(Map<String, RundeckJob> byId, Map<String, RundeckJob> byReference, long lastRefresh) {
+            this.byId = byId;
+            this.byReference = byReference;
+            this.lastRefresh = lastRefresh;
+        }
+    }
+}
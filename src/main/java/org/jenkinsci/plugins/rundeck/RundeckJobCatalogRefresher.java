@@ -0,0 +1,46 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Hudson;
+import hudson.model.TaskListener;
+import java.io.IOException;
+import org.jenkinsci.plugins.rundeck.RundeckNotifier.RundeckDescriptor;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+
+/**
+ * Periodically reloads the {@link RundeckJobCatalog} from Rundeck, in the background.
+ */
+@Extension
+public class RundeckJobCatalogRefresher extends AsyncPeriodicWork {
+
+    public RundeckJobCatalogRefresher() {
+        super("Rundeck job catalog refresh");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return 15 * MIN;
+    }
+
+    @Override
+    public long getInitialDelay() {
+        return MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        RundeckDescriptor descriptor = Hudson.getInstance().getDescriptorByType(RundeckDescriptor.class);
+        RundeckClient rundeck = descriptor != null ? descriptor.getRundeckInstance() : null;
+        if (rundeck == null) {
+            return;
+        }
+        try {
+            descriptor.getJobCatalog().refresh(rundeck);
+            listener.getLogger().println("Loaded " + descriptor.getJobCatalog().getSize() + " Rundeck jobs");
+        } catch (RundeckApiException e) {
+            listener.getLogger().println("Failed to list the Rundeck jobs : " + e.getMessage());
+        }
+    }
+}
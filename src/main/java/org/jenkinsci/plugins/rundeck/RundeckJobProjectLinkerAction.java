@@ -1,9 +1,12 @@
 package org.jenkinsci.plugins.rundeck;
 
 import hudson.model.Action;
+import hudson.model.Hudson;
 import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.rundeck.RundeckNotifier.RundeckDescriptor;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.export.Exported;
-import org.rundeck.api.RundeckApiException;
 import org.rundeck.api.RundeckClient;
 import org.rundeck.api.domain.RundeckJob;
 
@@ -15,49 +18,81 @@ import org.rundeck.api.domain.RundeckJob;
  */
 public class RundeckJobProjectLinkerAction implements Action {
 
-    private final RundeckClient rundeck;
+    /** Request attribute value for a job which is not loaded yet */
+    private static final Object JOB_NOT_LOADED = new Object();
 
-    private final RundeckJob rundeckJob;
+    private final RundeckClient rundeck;
 
-    private final String rundeckJobUrl;
+    private final String rundeckJobIdentifier;
 
     /**
-     * Load the Rundeck job details (name, description, and so on) using the Rundeck API.
+     * Lazily load the Rundeck job details (name, description, and so on) : they are taken from the job catalog or the
+     * job cache when the page is rendered, and reloaded from the Rundeck API in the background if needed, so that
+     * rendering never waits for Rundeck.
      * 
      * @param rundeck client used for talking to the Rundeck API
      * @param rundeckJobId ID of the Rundeck job
-     * @throws RundeckApiException in case of error while loading the job details from Rundeck API
      * @throws IllegalArgumentException if rundeck or rundeckJobId is null
      */
-    public RundeckJobProjectLinkerAction(RundeckClient rundeck, String rundeckJobId) throws RundeckApiException,
-            IllegalArgumentException {
+    public RundeckJobProjectLinkerAction(RundeckClient rundeck, String rundeckJobId) throws IllegalArgumentException {
         if (rundeck == null) {
             throw new IllegalArgumentException("rundeckClient should not be null !");
         }
+        if (rundeckJobId == null) {
+            throw new IllegalArgumentException("rundeckJobId should not be null !");
+        }
         this.rundeck = rundeck;
-        this.rundeckJob = RundeckNotifier.RundeckDescriptor.findJob(rundeckJobId, rundeck);
-        this.rundeckJobUrl = buildRundeckJobUrl();
+        this.rundeckJobIdentifier = rundeckJobId;
     }
 
     /**
      * Build the absolute url to the Rundeck job page.
      * 
-     * @return the absolute url to the Rundeck job page, or null if unable to build it
+     * @param job the Rundeck job, or null if not loaded yet
+     * @return the absolute url to the Rundeck job page, or to the Rundeck home page if we don't know the job ID yet
      */
-    private String buildRundeckJobUrl() {
+    private String buildRundeckJobUrl(RundeckJob job) {
         StringBuilder url = new StringBuilder();
         url.append(rundeck.getUrl());
         if (!StringUtils.endsWith(rundeck.getUrl(), "/")) {
             url.append("/");
         }
-        url.append("job/show/");
-        url.append(rundeckJob.getId());
+        if (job != null) {
+            url.append("job/show/").append(job.getId());
+        } else if (!StringUtils.contains(rundeckJobIdentifier, ":")) {
+            // the identifier is already the job ID
+            url.append("job/show/").append(rundeckJobIdentifier);
+        }
         return url.toString();
     }
 
+    /**
+     * The job is looked up once per request, as a page asks for it several times (display name, url, details).
+     *
+     * @return the Rundeck job, or null if its details are not loaded yet
+     */
     @Exported
     public RundeckJob getRundeckJob() {
-        return rundeckJob;
+        StaplerRequest request = Stapler.getCurrentRequest();
+        if (request == null) {
+            return peekJob();
+        }
+        String attribute = RundeckJobProjectLinkerAction.class.getName() + ":" + rundeckJobIdentifier;
+        Object job = request.getAttribute(attribute);
+        if (job == null) {
+            job = peekJob();
+            request.setAttribute(attribute, job != null ? job : JOB_NOT_LOADED);
+        }
+        return job instanceof RundeckJob ? (RundeckJob) job : null;
+    }
+
+    private RundeckJob peekJob() {
+        RundeckDescriptor descriptor = Hudson.getInstance().getDescriptorByType(RundeckDescriptor.class);
+        return descriptor != null ? descriptor.peekJob(rundeckJobIdentifier, rundeck) : null;
+    }
+
+    public String getRundeckJobIdentifier() {
+        return rundeckJobIdentifier;
     }
 
     public String getIconFileName() {
@@ -65,11 +100,15 @@ public class RundeckJobProjectLinkerAction implements Action {
     }
 
     public String getDisplayName() {
-        return "Job: [" + rundeckJob.getProject() + "] " + rundeckJob.getName();
+        RundeckJob job = getRundeckJob();
+        if (job == null) {
+            return "Job: " + rundeckJobIdentifier;
+        }
+        return "Job: [" + job.getProject() + "] " + job.getName();
     }
 
     public String getUrlName() {
-        return rundeckJobUrl;
+        return buildRundeckJobUrl(getRundeckJob());
     }
 
 }
@@ -0,0 +1,111 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.model.Action;
+import hudson.model.Run;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import org.kohsuke.stapler.Stapler;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+/**
+ * {@link Action} used to page through the output of a Rundeck execution stored in a {@link RundeckLogArchive}, on the
+ * Jenkins build page.
+ */
+public class RundeckLogAction implements Action {
+
+    /** Number of lines displayed on each page */
+    public static final int PAGE_SIZE = 500;
+
+    private final Long executionId;
+
+    /**
+     * @param executionId ID of the Rundeck execution whose output is archived in the build directory
+     */
+    public RundeckLogAction(Long executionId) {
+        this.executionId = executionId;
+    }
+
+    public Long getExecutionId() {
+        return executionId;
+    }
+
+    public int getPageSize() {
+        return PAGE_SIZE;
+    }
+
+    /**
+     * @return the build this action belongs to (found from the current request)
+     */
+    public Run<?, ?> getBuild() {
+        return Stapler.getCurrentRequest().findAncestorObject(Run.class);
+    }
+
+    private RundeckLogArchive getArchive() {
+        return new RundeckLogArchive(getBuild().getRootDir(), executionId);
+    }
+
+    /**
+     * @return the total number of lines of the output, or 0 if the output is not available
+     */
+    public int getLineCount() {
+        RundeckLogArchive archive = getArchive();
+        try {
+            return archive.exists() ? archive.getLineCount() : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @param start index of the first line of the page (0-based)
+     * @return the lines of the page
+     */
+    public List<String> getLines(int start) {
+        RundeckLogArchive archive = getArchive();
+        try {
+            return archive.exists() ? archive.readLines(start, PAGE_SIZE) : Collections.<String> emptyList();
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * @return the index of the first line of the requested page
+     */
+    public int getStart() {
+        try {
+            return Math.max(0, Integer.parseInt(Stapler.getCurrentRequest().getParameter("start")));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Download the whole (uncompressed) output, as plain text
+     */
+    public void doDownload(StaplerRequest request, StaplerResponse response) throws IOException {
+        RundeckLogArchive archive = getArchive();
+        if (!archive.exists()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        response.setContentType("text/plain;charset=UTF-8");
+        archive.writeTo(response.getOutputStream());
+    }
+
+    public String getIconFileName() {
+        return "/plugin/rundeck/images/rundeck_24x24.png";
+    }
+
+    public String getDisplayName() {
+        return "Rundeck Output";
+    }
+
+    public String getUrlName() {
+        return "rundeckOutput";
+    }
+
+}
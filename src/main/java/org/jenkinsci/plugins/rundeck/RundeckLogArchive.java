@@ -0,0 +1,262 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.rundeck.RundeckLogTailer.LogSink;
+
+/**
+ * Gzip-compressed file holding the output of a Rundeck execution, stored in the build directory.<br>
+ * Lines are compressed by blocks of {@link #BLOCK_LINES} lines, each block being a separate gzip member (so the whole
+ * file is still a valid gzip file). A small index file keeps the offset of each block, so that we can read any page of
+ * the output without decompressing what comes before.
+ */
+public class RundeckLogArchive {
+
+    /** Number of lines in each compressed block */
+    static final int BLOCK_LINES = 1000;
+
+    private static final String CHARSET = "UTF-8";
+
+    private final File logFile;
+
+    private final File indexFile;
+
+    /**
+     * @param directory in which the files are stored (the build directory)
+     * @param executionId ID of the Rundeck execution
+     */
+    public RundeckLogArchive(File directory, Long executionId) {
+        this.logFile = new File(directory, "rundeck-output-" + executionId + ".log.gz");
+        this.indexFile = new File(directory, "rundeck-output-" + executionId + ".idx");
+    }
+
+    public boolean exists() {
+        return logFile.exists() && indexFile.exists();
+    }
+
+    /**
+     * Start writing the output. Only the first headLines and the last tailLines will also be printed on the console.
+     *
+     * @param console on which we print the head and tail of the output
+     * @param headLines number of lines printed when we start writing
+     * @param tailLines number of lines printed when we are done writing
+     * @return a writer which must be closed once the output is complete
+     * @throws IOException in case of error while creating the file
+     */
+    public ArchiveWriter openWriter(PrintStream console, int headLines, int tailLines) throws IOException {
+        return new ArchiveWriter(console, headLines, tailLines);
+    }
+
+    /**
+     * @return the total number of lines
+     * @throws IOException in case of error while reading the index
+     */
+    public int getLineCount() throws IOException {
+        DataInputStream index = new DataInputStream(new FileInputStream(indexFile));
+        try {
+            return index.readInt();
+        } finally {
+            IOUtils.closeQuietly(index);
+        }
+    }
+
+    /**
+     * Read some lines of the output
+     *
+     * @param from index of the first line to read (0-based)
+     * @param count maximum number of lines to read
+     * @return the lines read (empty if out of bounds)
+     * @throws IOException in case of error while reading the files
+     */
+    public List<String> readLines(int from, int count) throws IOException {
+        long[] offsets;
+        DataInputStream index = new DataInputStream(new FileInputStream(indexFile));
+        try {
+            int lineCount = index.readInt();
+            if (from < 0 || from >= lineCount || count <= 0) {
+                return Collections.emptyList();
+            }
+            offsets = new long[index.readInt()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = index.readLong();
+            }
+        } finally {
+            IOUtils.closeQuietly(index);
+        }
+
+        int block = Math.min(from / BLOCK_LINES, offsets.length - 1);
+        FileInputStream input = new FileInputStream(logFile);
+        try {
+            input.getChannel().position(offsets[block]);
+            // GZIPInputStream goes on with the following gzip members, if we need more lines than this block holds
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(input), CHARSET));
+            for (int i = block * BLOCK_LINES; i < from; i++) {
+                if (reader.readLine() == null) {
+                    return Collections.emptyList();
+                }
+            }
+            List<String> lines = new ArrayList<String>(count);
+            String line;
+            while (lines.size() < count && (line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Write the whole (uncompressed) output to the given stream
+     *
+     * @param output destination
+     * @throws IOException in case of error while reading the file or writing the output
+     */
+    public void writeTo(OutputStream output) throws IOException {
+        if (logFile.length() == 0) {
+            return;
+        }
+        InputStream input = new GZIPInputStream(new FileInputStream(logFile));
+        try {
+            IOUtils.copy(input, output);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * {@link LogSink} writing the output into the compressed file, and printing its head and tail on the console.
+     */
+    public class ArchiveWriter implements LogSink {
+
+        private final CountingOutputStream file;
+
+        private final List<Long> offsets = new ArrayList<Long>();
+
+        private final PrintStream console;
+
+        private final int headLines;
+
+        private final int tailLines;
+
+        private final LinkedList<String> tail = new LinkedList<String>();
+
+        private Writer block;
+
+        private int lineCount = 0;
+
+        private ArchiveWriter(PrintStream console, int headLines, int tailLines) throws IOException {
+            this.file = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(logFile)));
+            this.console = console;
+            this.headLines = headLines;
+            this.tailLines = tailLines;
+        }
+
+        public void println(String message) throws IOException {
+            for (String line : StringUtils.defaultString(message).split("\r?\n", -1)) {
+                if (lineCount % BLOCK_LINES == 0) {
+                    finishBlock();
+                    offsets.add(file.getByteCount());
+                    block = new OutputStreamWriter(new GZIPOutputStream(new UnclosableOutputStream(file)), CHARSET);
+                }
+                block.write(line);
+                block.write('\n');
+
+                if (lineCount < headLines) {
+                    console.println(line);
+                } else if (tailLines > 0) {
+                    tail.addLast(line);
+                    if (tail.size() > tailLines) {
+                        tail.removeFirst();
+                    }
+                }
+                lineCount++;
+            }
+        }
+
+        /**
+         * Complete the compressed file, write the index, and print the tail of the output on the console
+         *
+         * @throws IOException in case of error while writing the files
+         */
+        public void close() throws IOException {
+            finishBlock();
+            file.close();
+
+            DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+            try {
+                index.writeInt(lineCount);
+                index.writeInt(offsets.size());
+                for (Long offset : offsets) {
+                    index.writeLong(offset);
+                }
+            } finally {
+                index.close();
+            }
+
+            int omitted = lineCount - Math.min(lineCount, headLines) - tail.size();
+            if (omitted > 0) {
+                console.println("[... " + omitted + " lines omitted, see the \"Rundeck Output\" page of this build ...]");
+            }
+            for (String line : tail) {
+                console.println(line);
+            }
+            tail.clear();
+        }
+
+        public int getLineCount() {
+            return lineCount;
+        }
+
+        private void finishBlock() throws IOException {
+            if (block != null) {
+                // closing the writer finishes the gzip member, without closing the file
+                block.close();
+                block = null;
+            }
+        }
+    }
+
+    /**
+     * Keeps the underlying stream open when closed, so that we can close each gzip member (and release its deflater)
+     * while still writing to the same file.
+     */
+    private static class UnclosableOutputStream extends FilterOutputStream {
+
+        public UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
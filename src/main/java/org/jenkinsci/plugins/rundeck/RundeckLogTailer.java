@@ -0,0 +1,107 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+import org.rundeck.api.domain.RundeckOutput;
+import org.rundeck.api.domain.RundeckOutputEntry;
+
+/**
+ * Incrementally fetches the output of a Rundeck execution, using the offset and last modification date returned by
+ * the Rundeck API, so that only the new entries are transferred (and printed) each time.
+ */
+public class RundeckLogTailer {
+
+    private final RundeckClient rundeck;
+
+    private final Long executionId;
+
+    private final LogSink sink;
+
+    private int offset = 0;
+
+    private long lastModified = 0;
+
+    private boolean completed = false;
+
+    /**
+     * @param rundeck client used for talking to the Rundeck API
+     * @param executionId ID of the execution
+     * @param logger where the output entries are printed
+     */
+    public RundeckLogTailer(RundeckClient rundeck, Long executionId, final PrintStream logger) {
+        this(rundeck, executionId, new LogSink() {
+
+            public void println(String message) {
+                logger.println(message);
+            }
+        });
+    }
+
+    /**
+     * @param rundeck client used for talking to the Rundeck API
+     * @param executionId ID of the execution
+     * @param sink where the output entries are written
+     */
+    public RundeckLogTailer(RundeckClient rundeck, Long executionId, LogSink sink) {
+        this.rundeck = rundeck;
+        this.executionId = executionId;
+        this.sink = sink;
+    }
+
+    /**
+     * Fetch and write the output entries produced since the last call.
+     *
+     * @return the number of new entries
+     * @throws RundeckApiException in case of error while talking to the Rundeck API
+     * @throws IOException in case of error while writing the entries
+     */
+    public int tail() throws RundeckApiException, IOException {
+        if (completed) {
+            return 0;
+        }
+        RundeckOutput output = rundeck.getJobExecutionOutput(executionId, offset, 0, lastModified);
+        if (output == null) {
+            return 0;
+        }
+
+        int count = 0;
+        List<RundeckOutputEntry> logEntries = output.getLogEntries();
+        if (logEntries != null) {
+            for (RundeckOutputEntry entry : logEntries) {
+                sink.println(entry.getMessage());
+                count++;
+            }
+        }
+
+        if (output.getOffset() != null) {
+            offset = output.getOffset();
+        }
+        if (output.getLastModified() != null) {
+            lastModified = output.getLastModified();
+        }
+        completed = Boolean.TRUE.equals(output.getExecCompleted()) && Boolean.TRUE.equals(output.getCompleted());
+        return count;
+    }
+
+    /**
+     * @return true once the execution is finished and its whole output has been fetched
+     */
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    /**
+     * Destination of the output entries
+     */
+    public interface LogSink {
+
+        /**
+         * @param message of an output entry
+         * @throws IOException in case of error while writing the message
+         */
+        void println(String message) throws IOException;
+    }
+}
@@ -13,13 +13,20 @@ import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Notifier;
 import hudson.tasks.Publisher;
 import hudson.util.FormValidation;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.List;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.rundeck.RundeckExecutionPoller.ExecutionListener;
+import org.jenkinsci.plugins.rundeck.RundeckLogArchive.ArchiveWriter;
+import org.jenkinsci.plugins.rundeck.RundeckExecutionPoller.TrackedExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
@@ -28,8 +35,6 @@ import org.rundeck.api.RundeckApiException.RundeckApiLoginException;
 import org.rundeck.api.domain.RundeckExecution;
 import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
 import org.rundeck.api.domain.RundeckJob;
-import org.rundeck.api.domain.RundeckOutput;
-import org.rundeck.api.domain.RundeckOutputEntry;
 
 /**
  * Jenkins {@link Notifier} that runs a job on Rundeck (via the {@link RundeckClient})
@@ -38,12 +43,20 @@ import org.rundeck.api.domain.RundeckOutputEntry;
  */
 public class RundeckNotifier extends Notifier {
 
+    private static final Logger LOGGER = Logger.getLogger(RundeckNotifier.class.getName());
+
     /** Pattern used for the token expansion of $ARTIFACT_NAME{regex} */
     private static final transient Pattern TOKEN_ARTIFACT_NAME_PATTERN = Pattern.compile("\\$ARTIFACT_NAME\\{(.+)\\}");
 
     /** Pattern used for extracting the job reference (project:group/name) */
     private static final transient Pattern JOB_REFERENCE_PATTERN = Pattern.compile("^([^:]+?):(.*?)\\/?([^/]+)$");
 
+    /** Delay between 2 fetches of the output of a running Rundeck execution, in milliseconds */
+    private static final long LOG_TAIL_INTERVAL = 2000;
+
+    /** Number of fetches without new output after which we stop waiting for the end of the output */
+    private static final int MAX_IDLE_LOG_TAILS = 10;
+
     private final String jobId;
 
     private final String options;
@@ -58,14 +71,31 @@ public class RundeckNotifier extends Notifier {
 
     private final Boolean includeRundeckLogs;
 
+    private final Boolean shouldWaitInBackground;
+
+    private final Boolean archiveRundeckLogs;
+
     public RundeckNotifier(String jobId, String options, String nodeFilters, String tag,
             Boolean shouldWaitForRundeckJob, Boolean shouldFailTheBuild) {
        this(jobId, options, nodeFilters, tag, shouldWaitForRundeckJob, shouldFailTheBuild, false);
     }
 
-    @DataBoundConstructor
     public RundeckNotifier(String jobId, String options, String nodeFilters, String tag,
             Boolean shouldWaitForRundeckJob, Boolean shouldFailTheBuild, Boolean includeRundeckLogs) {
+       this(jobId, options, nodeFilters, tag, shouldWaitForRundeckJob, shouldFailTheBuild, includeRundeckLogs, false);
+    }
+
+    public RundeckNotifier(String jobId, String options, String nodeFilters, String tag,
+            Boolean shouldWaitForRundeckJob, Boolean shouldFailTheBuild, Boolean includeRundeckLogs,
+            Boolean shouldWaitInBackground) {
+       this(jobId, options, nodeFilters, tag, shouldWaitForRundeckJob, shouldFailTheBuild, includeRundeckLogs,
+            shouldWaitInBackground, false);
+    }
+
+    @DataBoundConstructor
+    public RundeckNotifier(String jobId, String options, String nodeFilters, String tag,
+            Boolean shouldWaitForRundeckJob, Boolean shouldFailTheBuild, Boolean includeRundeckLogs,
+            Boolean shouldWaitInBackground, Boolean archiveRundeckLogs) {
         this.jobId = jobId;
         this.options = options;
         this.nodeFilters = nodeFilters;
@@ -73,6 +103,8 @@ public class RundeckNotifier extends Notifier {
         this.shouldWaitForRundeckJob = shouldWaitForRundeckJob;
         this.shouldFailTheBuild = shouldFailTheBuild;
         this.includeRundeckLogs = includeRundeckLogs;
+        this.shouldWaitInBackground = shouldWaitInBackground;
+        this.archiveRundeckLogs = archiveRundeckLogs;
     }
 
     @Override
@@ -88,14 +120,15 @@ public class RundeckNotifier extends Notifier {
             listener.getLogger().println("Rundeck configuration is not valid !");
             return false;
         }
-        try {
-            rundeck.ping();
-        } catch (RundeckApiException e) {
-            listener.getLogger().println("Rundeck is not running !");
-            return false;
-        }
 
         if (shouldNotifyRundeck(build, listener)) {
+            RundeckHealthTracker health = getDescriptor().getHealthTracker();
+            if (!health.allowRequest()) {
+                listener.getLogger().println("Rundeck is not available (" + health.getConsecutiveFailures()
+                                             + " consecutive failures, last one : " + health.getLastFailureMessage()
+                                             + ") - next attempt in " + health.getRetryIn() + " seconds");
+                return false;
+            }
             return notifyRundeck(rundeck, build, listener);
         }
 
@@ -163,8 +196,9 @@ public class RundeckNotifier extends Notifier {
         //if the jobId is in the form "project:[group/*]name", find the actual job ID first.
         String foundJobId = null;
         try {
-            foundJobId = RundeckDescriptor.findJobId(jobId, rundeck);
+            foundJobId = getDescriptor().resolveJobId(jobId, rundeck);
         } catch (RundeckApiException e) {
+            getDescriptor().getHealthTracker().recordFailure(e);
             listener.getLogger().println("Failed to get job with the identifier : " + jobId + " : "+e.getMessage());
             return false;
         } catch (IllegalArgumentException e) {
@@ -181,39 +215,69 @@ public class RundeckNotifier extends Notifier {
                     .setOptions(parseProperties(options, build, listener))
                     .setNodeFilters(parseProperties(nodeFilters, build, listener))
                     .build());
+            getDescriptor().getHealthTracker().recordSuccess();
 
             listener.getLogger().println("Notification succeeded ! Execution #" + execution.getId() + ", at "
                     + execution.getUrl() + " (status : " + execution.getStatus() + ")");
-            build.addAction(new RundeckExecutionBuildBadgeAction(execution.getUrl()));
+            RundeckExecutionBuildBadgeAction badge = new RundeckExecutionBuildBadgeAction(execution.getUrl());
+            build.addAction(badge);
+
+            if (isWaitingInBackground()) {
+                listener.getLogger().println("Waiting for Rundeck execution #" + execution.getId()
+                        + " to finish in the background...");
+                if (Boolean.TRUE.equals(includeRundeckLogs)) {
+                    listener.getLogger().println("The Rundeck job output is not included when waiting in the background");
+                }
+                TrackedExecution tracked = getDescriptor().getExecutionPoller().track(rundeck, foundJobId, execution);
+                tracked.addListener(new BackgroundCompletionListener(build, badge, Boolean.TRUE.equals(shouldFailTheBuild)));
+                return true;
+            }
 
             if (Boolean.TRUE.equals(shouldWaitForRundeckJob)) {
                 listener.getLogger().println("Waiting for Rundeck execution to finish...");
-                while (ExecutionStatus.RUNNING.equals(execution.getStatus())) {
-                    try {
-                        Thread.sleep(5000);
-                    } catch (InterruptedException e) {
-                        listener.getLogger().println("Oops, interrupted ! " + e.getMessage());
-                        break;
+                TrackedExecution tracked = getDescriptor().getExecutionPoller().track(rundeck, foundJobId, execution);
+                RundeckLogTailer tailer = null;
+                ArchiveWriter archiveWriter = null;
+                try {
+                    if (Boolean.TRUE.equals(includeRundeckLogs)) {
+                        listener.getLogger().println("BEGIN RUNDECK LOG OUTPUT");
+                        if (Boolean.TRUE.equals(archiveRundeckLogs)) {
+                            archiveWriter = new RundeckLogArchive(build.getRootDir(), execution.getId())
+                                    .openWriter(listener.getLogger(),
+                                                getDescriptor().getLogArchiveHeadLines(),
+                                                getDescriptor().getLogArchiveTailLines());
+                            build.addAction(new RundeckLogAction(execution.getId()));
+                            tailer = new RundeckLogTailer(rundeck, execution.getId(), archiveWriter);
+                        } else {
+                            tailer = new RundeckLogTailer(rundeck, execution.getId(), listener.getLogger());
+                        }
+                    }
+                    if (tailer == null) {
+                        execution = tracked.await();
+                    } else {
+                        // stream the output while the execution is running
+                        while (!tracked.await(LOG_TAIL_INTERVAL)) {
+                            tail(tailer, listener);
+                        }
+                        execution = tracked.await();
+                        tailRemainingLogs(tailer, listener);
                     }
-                    execution = rundeck.getExecution(execution.getId());
+                } catch (InterruptedException e) {
+                    listener.getLogger().println("Oops, interrupted ! " + e.getMessage());
+                    execution = tracked.getExecution();
+                } finally {
+                    // no-op if the execution is finished, but we must not leak it otherwise
+                    getDescriptor().getExecutionPoller().untrack(tracked);
+                    if (archiveWriter != null) {
+                        archiveWriter.close();
+                    }
+                }
+                if (tailer != null) {
+                    listener.getLogger().println("END RUNDECK LOG OUTPUT");
                 }
                 listener.getLogger().println("Rundeck execution #" + execution.getId() + " finished in "
                         + execution.getDuration() + ", with status : " + execution.getStatus());
-
-                if (Boolean.TRUE.equals(includeRundeckLogs)) {
-                   listener.getLogger().println("BEGIN RUNDECK LOG OUTPUT");
-                   RundeckOutput rundeckOutput = rundeck.getJobExecutionOutput(execution.getId(), 0, 0, 0);
-                   if (null != rundeckOutput) {
-                      List<RundeckOutputEntry> logEntries = rundeckOutput.getLogEntries();
-                         if (null != logEntries) {
-                            for (int i=0; i<logEntries.size(); i++) {
-                               RundeckOutputEntry rundeckOutputEntry = (RundeckOutputEntry)logEntries.get(i);
-                               listener.getLogger().println(rundeckOutputEntry.getMessage());
-                            }
-                         }
-                   }
-                   listener.getLogger().println("END RUNDECK LOG OUTPUT");
-                }
+                badge.setExecutionStatus(execution.getStatus());
 
                 switch (execution.getStatus()) {
                     case SUCCEEDED:
@@ -228,18 +292,65 @@ public class RundeckNotifier extends Notifier {
                 return true;
             }
         } catch (RundeckApiLoginException e) {
+            getDescriptor().getHealthTracker().recordFailure(e);
             listener.getLogger().println("Login failed on " + rundeck.getUrl() + " : " + e.getMessage());
             return false;
         } catch (RundeckApiException.RundeckApiTokenException e) {
+            getDescriptor().getHealthTracker().recordFailure(e);
             listener.getLogger().println("Token auth failed on " + rundeck.getUrl() + " : " + e.getMessage());
             return false;
         } catch (RundeckApiException e) {
+            getDescriptor().getHealthTracker().recordFailure(e);
             listener.getLogger().println("Error while talking to Rundeck's API at " + rundeck.getUrl() + " : "
                                          + e.getMessage());
             return false;
         } catch (IllegalArgumentException e) {
             listener.getLogger().println("Configuration error : " + e.getMessage());
             return false;
+        } catch (IOException e) {
+            listener.getLogger().println("Failed to write the Rundeck job output : " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Fetch the new output entries. An error while talking to the Rundeck API is only logged : the output is not worth
+     * failing the build, and the next call will resume from the same offset.
+     *
+     * @param tailer of the execution
+     * @param listener for logging the errors
+     * @return the number of new entries (0 in case of error)
+     * @throws IOException in case of error while writing the output
+     */
+    private int tail(RundeckLogTailer tailer, BuildListener listener) throws IOException {
+        try {
+            return tailer.tail();
+        } catch (RundeckApiException e) {
+            getDescriptor().getHealthTracker().recordFailure(e);
+            listener.getLogger().println("Failed to fetch the Rundeck execution output : " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Fetch the output entries not printed yet, once the execution is finished : Rundeck may need some time before the
+     * whole output is available.
+     *
+     * @param tailer of the finished execution
+     * @param listener for logging the errors
+     * @throws IOException in case of error while writing the output
+     * @throws InterruptedException if interrupted while waiting for more output
+     */
+    private void tailRemainingLogs(RundeckLogTailer tailer, BuildListener listener) throws IOException,
+            InterruptedException {
+        int idleTails = 0;
+        while (!tailer.isCompleted() && idleTails < MAX_IDLE_LOG_TAILS) {
+            if (tail(tailer, listener) > 0) {
+                idleTails = 0;
+            } else {
+                idleTails++;
+                Thread.sleep(LOG_TAIL_INTERVAL / 2);
+            }
         }
     }
 
@@ -271,10 +382,10 @@ public class RundeckNotifier extends Notifier {
         while (matcher.reset(input).find(idx)) {
             idx = matcher.end();
             String regex = matcher.group(1);
-            Pattern pattern = Pattern.compile(regex);
+            ArtifactMatcher artifactMatcher = PatternCache.getRegex(regex);
             for (@SuppressWarnings("rawtypes")
             Artifact artifact : build.getArtifacts()) {
-                if (pattern.matcher(artifact.getFileName()).matches()) {
+                if (artifactMatcher.matches(artifact.getFileName())) {
                     input = StringUtils.replace(input, matcher.group(0), artifact.getFileName());
                     idx = matcher.start() + artifact.getFileName().length();
                     break;
@@ -295,8 +406,6 @@ public class RundeckNotifier extends Notifier {
     public Action getProjectAction(AbstractProject<?, ?> project) {
         try {
             return new RundeckJobProjectLinkerAction(getDescriptor().getRundeckInstance(), jobId);
-        } catch (RundeckApiException e) {
-            return null;
         } catch (IllegalArgumentException e) {
             return null;
         }
@@ -304,11 +413,20 @@ public class RundeckNotifier extends Notifier {
 
     /**
      * If we should not fail the build, we need to run after finalized, so that the result of "perform" is not used by
-     * Jenkins
+     * Jenkins. When waiting in the background, "perform" returns right away and the result of the Rundeck execution is
+     * only reported on the build later on (see {@link BackgroundCompletionListener}), so we can also run after
+     * finalized.
      */
     @Override
     public boolean needsToRunAfterFinalized() {
-        return !shouldFailTheBuild;
+        return !shouldFailTheBuild || isWaitingInBackground();
+    }
+
+    /**
+     * @return true if we should wait for the Rundeck execution without holding the Jenkins executor
+     */
+    private boolean isWaitingInBackground() {
+        return Boolean.TRUE.equals(shouldWaitForRundeckJob) && Boolean.TRUE.equals(shouldWaitInBackground);
     }
 
     public BuildStepMonitor getRequiredMonitorService() {
@@ -347,6 +465,14 @@ public class RundeckNotifier extends Notifier {
         return includeRundeckLogs;
     }
 
+    public Boolean getShouldWaitInBackground() {
+        return shouldWaitInBackground;
+    }
+
+    public Boolean getArchiveRundeckLogs() {
+        return archiveRundeckLogs;
+    }
+
     @Override
     public RundeckDescriptor getDescriptor() {
         return (RundeckDescriptor) super.getDescriptor();
@@ -357,9 +483,47 @@ public class RundeckNotifier extends Notifier {
 
         private RundeckClient rundeckInstance;
 
+        private Integer minPollInterval;
+
+        private Integer maxPollInterval;
+
+        private Boolean webHookCompletion;
+
+        private Integer safetyNetPollInterval;
+
+        private Integer logArchiveHeadLines;
+
+        private Integer logArchiveTailLines;
+
+        private Integer webHookWorkers;
+
+        private Integer webHookQueueCapacity;
+
+        /** Names of the Rundeck projects whose executions are polled (instead of relying on WebHook notifications) */
+        private String polledProjects;
+
+        private final transient RundeckJobCatalog jobCatalog = new RundeckJobCatalog();
+
+        private final transient RundeckHealthTracker healthTracker = new RundeckHealthTracker();
+
+        private final transient RundeckExecutionPoller executionPoller = new RundeckExecutionPoller(jobCatalog,
+                                                                                                    healthTracker);
+
+        private final transient RundeckJobCache jobCache = new RundeckJobCache();
+
+        private final transient WebHookQueue webHookQueue = new WebHookQueue();
+
+        private final transient ExecutionDedupWindow dedupWindow = new ExecutionDedupWindow();
+
+        private transient WebHookJournal webHookJournal;
+
+        private transient RundeckExecutionFeed executionFeed;
+
         public RundeckDescriptor() {
             super();
             load();
+            applyPollIntervals();
+            webHookQueue.configure(getWebHookWorkers(), getWebHookQueueCapacity());
         }
 
         @Override
@@ -381,16 +545,45 @@ public class RundeckNotifier extends Notifier {
                 rundeckInstance = null;
             }
 
+            minPollInterval = json.optInt("minPollInterval") > 0 ? json.getInt("minPollInterval") : null;
+            maxPollInterval = json.optInt("maxPollInterval") > 0 ? json.getInt("maxPollInterval") : null;
+            webHookCompletion = json.optBoolean("webHookCompletion");
+            safetyNetPollInterval = json.optInt("safetyNetPollInterval") > 0 ? json.getInt("safetyNetPollInterval")
+                    : null;
+            logArchiveHeadLines = json.has("logArchiveHeadLines") && json.optInt("logArchiveHeadLines", -1) >= 0
+                    ? json.getInt("logArchiveHeadLines") : null;
+            logArchiveTailLines = json.has("logArchiveTailLines") && json.optInt("logArchiveTailLines", -1) >= 0
+                    ? json.getInt("logArchiveTailLines") : null;
+            webHookWorkers = json.optInt("webHookWorkers") > 0 ? json.getInt("webHookWorkers") : null;
+            webHookQueueCapacity = json.optInt("webHookQueueCapacity") > 0 ? json.getInt("webHookQueueCapacity")
+                    : null;
+            polledProjects = StringUtils.trimToNull(json.optString("polledProjects"));
+            applyPollIntervals();
+            webHookQueue.configure(getWebHookWorkers(), getWebHookQueueCapacity());
+            jobCache.invalidateAll();
+            jobCatalog.clear();
+
             save();
             return super.configure(req, json);
         }
 
+        /**
+         * Configure the {@link RundeckExecutionPoller} with the poll intervals (in seconds) of the global configuration
+         */
+        private void applyPollIntervals() {
+            executionPoller.setPollIntervals(getMinPollInterval() * 1000L, getMaxPollInterval() * 1000L);
+            executionPoller.setSafetyNetPollInterval(getWebHookCompletion() ? getSafetyNetPollInterval() * 1000L
+                    : null);
+        }
+
         public void setConfig(String url, String authtoken, int apiversion) {
             RundeckClientBuilder builder = RundeckClient.builder();
             builder.url(url);
             builder.token(authtoken);
             builder.version(apiversion);
             rundeckInstance = builder.build();
+            jobCache.invalidateAll();
+            jobCatalog.clear();
             save();
         }
 
@@ -400,6 +593,8 @@ public class RundeckNotifier extends Notifier {
             builder.login(login, password);
             builder.version(apiversion);
             rundeckInstance = builder.build();
+            jobCache.invalidateAll();
+            jobCatalog.clear();
             save();
         }
 
@@ -408,7 +603,7 @@ public class RundeckNotifier extends Notifier {
             String jobIdentifier = formData.getString("jobIdentifier");
             RundeckJob job = null;
             try {
-                job = findJob(jobIdentifier, rundeckInstance);
+                job = resolveJob(jobIdentifier, rundeckInstance);
             } catch (RundeckApiException e) {
                 throw new FormException("Failed to get job with the identifier : " + jobIdentifier, e, "jobIdentifier");
             } catch (IllegalArgumentException e) {
@@ -423,7 +618,9 @@ public class RundeckNotifier extends Notifier {
                                        formData.getString("tag"),
                                        formData.getBoolean("shouldWaitForRundeckJob"),
                                        formData.getBoolean("shouldFailTheBuild"),
-                                       formData.getBoolean("includeRundeckLogs"));
+                                       formData.getBoolean("includeRundeckLogs"),
+                                       formData.optBoolean("shouldWaitInBackground"),
+                                       formData.optBoolean("archiveRundeckLogs"));
         }
 
         public FormValidation doTestConnection(@QueryParameter("rundeck.url") final String url,
@@ -471,7 +668,7 @@ public class RundeckNotifier extends Notifier {
                 return FormValidation.error("The job identifier is mandatory !");
             }
             try {
-                RundeckJob job = findJob(jobIdentifier, rundeckInstance);
+                RundeckJob job = resolveJob(jobIdentifier, rundeckInstance);
                 if (job == null) {
                     return FormValidation.error("Could not find a job with the identifier : %s", jobIdentifier);
                 } else {
@@ -487,6 +684,80 @@ public class RundeckNotifier extends Notifier {
             }
         }
 
+        /**
+         * Same as {@link #findJobId(String, RundeckClient)}, but job references are resolved through the
+         * {@link RundeckJobCache}
+         *
+         * @param jobIdentifier either a Job ID, or "project:[group/]*name"
+         * @param rundeckClient the client instance
+         * @return a job UUID, or null if no job matches the reference
+         * @throws RundeckApiException
+         * @throws IllegalArgumentException
+         */
+        String resolveJobId(String jobIdentifier, RundeckClient rundeckClient) throws RundeckApiException,
+                IllegalArgumentException {
+            if (!JOB_REFERENCE_PATTERN.matcher(jobIdentifier).find()) {
+                return jobIdentifier;
+            }
+            RundeckJob job = resolveJob(jobIdentifier, rundeckClient);
+            return job != null ? job.getId() : null;
+        }
+
+        /**
+         * Same as {@link #findJob(String, RundeckClient)}, but looking in the {@link RundeckJobCatalog} first, and then
+         * in the {@link RundeckJobCache}
+         *
+         * @param jobIdentifier either a simple ID, an UUID or a reference (project:group/name)
+         * @param rundeckClient the client instance
+         * @return the {@link RundeckJob} found, or null if not found
+         * @throws RundeckApiException in case of error, or if no job with this ID
+         * @throws IllegalArgumentException if the identifier is not valid
+         */
+        RundeckJob resolveJob(String jobIdentifier, RundeckClient rundeckClient) throws RundeckApiException,
+                IllegalArgumentException {
+            RundeckJob job = jobCatalog.find(jobIdentifier);
+            if (job != null) {
+                return job;
+            }
+            return jobCache.findJob(jobIdentifier, rundeckClient);
+        }
+
+        /**
+         * Find the job with the given identifier without ever talking to Rundeck on the calling thread : look in the
+         * {@link RundeckJobCatalog}, then in the {@link RundeckJobCache}, which will reload missing or outdated jobs in
+         * the background.
+         *
+         * @param jobIdentifier either a simple ID, an UUID or a reference (project:group/name)
+         * @param rundeckClient the client instance
+         * @return the {@link RundeckJob} found (maybe outdated), or null if not known yet
+         */
+        RundeckJob peekJob(String jobIdentifier, RundeckClient rundeckClient) {
+            RundeckJob job = jobCatalog.find(jobIdentifier);
+            if (job != null) {
+                return job;
+            }
+            return jobCache.getOrRefreshAsync(jobIdentifier, rundeckClient);
+        }
+
+        public FormValidation doRefreshJobCatalog() {
+            Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+            if (rundeckInstance == null) {
+                return FormValidation.error("Rundeck global configuration is not valid !");
+            }
+            try {
+                jobCatalog.refresh(rundeckInstance);
+            } catch (RundeckApiException e) {
+                return FormValidation.error("Failed to list the Rundeck jobs : %s", e.getMessage());
+            }
+            return FormValidation.ok("Loaded %s Rundeck jobs", jobCatalog.getSize());
+        }
+
+        public FormValidation doClearJobCache() {
+            Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+            jobCache.invalidateAll();
+            return FormValidation.ok("The Rundeck job cache has been cleared");
+        }
+
         /**
          * Return a rundeck Job ID, by find a rundeck job if the identifier is a project:[group/]*name format, otherwise
          * returning the original identifier as the ID.
@@ -545,6 +816,133 @@ public class RundeckNotifier extends Notifier {
 
         public void setRundeckInstance(RundeckClient rundeckInstance) {
             this.rundeckInstance = rundeckInstance;
+            jobCache.invalidateAll();
+            jobCatalog.clear();
+        }
+
+        public RundeckJobCache getJobCache() {
+            return jobCache;
+        }
+
+        public RundeckJobCatalog getJobCatalog() {
+            return jobCatalog;
+        }
+
+        public RundeckExecutionPoller getExecutionPoller() {
+            return executionPoller;
+        }
+
+        public RundeckHealthTracker getHealthTracker() {
+            return healthTracker;
+        }
+
+        public WebHookQueue getWebHookQueue() {
+            return webHookQueue;
+        }
+
+        public ExecutionDedupWindow getDedupWindow() {
+            return dedupWindow;
+        }
+
+        /**
+         * @return the journal of the WebHook notifications, stored in the Jenkins root directory
+         */
+        public synchronized WebHookJournal getWebHookJournal() {
+            if (webHookJournal == null) {
+                webHookJournal = new WebHookJournal(new File(Hudson.getInstance().getRootDir(),
+                                                             "rundeck-webhook-journal"),
+                                                    WebHookJournal.DEFAULT_RETENTION);
+            }
+            return webHookJournal;
+        }
+
+        /**
+         * @return the feed of the executions of the polled Rundeck projects, with its state stored in the Jenkins root
+         *         directory
+         */
+        public synchronized RundeckExecutionFeed getExecutionFeed() {
+            if (executionFeed == null) {
+                executionFeed = new RundeckExecutionFeed(new File(Hudson.getInstance().getRootDir(),
+                                                                  "rundeck-execution-feed.xml"));
+            }
+            return executionFeed;
+        }
+
+        /**
+         * @return the minimum delay between 2 polls of a Rundeck execution, in seconds
+         */
+        public int getMinPollInterval() {
+            return minPollInterval != null ? minPollInterval
+                    : (int) (RundeckExecutionPoller.DEFAULT_MIN_POLL_INTERVAL / 1000);
+        }
+
+        /**
+         * @return the maximum delay between 2 polls of a Rundeck execution, in seconds
+         */
+        public int getMaxPollInterval() {
+            return maxPollInterval != null ? maxPollInterval
+                    : (int) (RundeckExecutionPoller.DEFAULT_MAX_POLL_INTERVAL / 1000);
+        }
+
+        /**
+         * @return true if the Rundeck jobs send WebHook notifications to Jenkins, which we can use for completing the
+         *         waiting builds
+         */
+        public boolean getWebHookCompletion() {
+            return Boolean.TRUE.equals(webHookCompletion);
+        }
+
+        /**
+         * @return the delay between 2 polls of a Rundeck execution when relying on WebHook notifications, in seconds
+         */
+        public int getSafetyNetPollInterval() {
+            return safetyNetPollInterval != null ? safetyNetPollInterval : 300;
+        }
+
+        /**
+         * @return the number of threads processing the WebHook notifications
+         */
+        public int getWebHookWorkers() {
+            return webHookWorkers != null ? webHookWorkers : WebHookQueue.DEFAULT_WORKERS;
+        }
+
+        /**
+         * @return the maximum number of WebHook notifications waiting to be processed
+         */
+        public int getWebHookQueueCapacity() {
+            return webHookQueueCapacity != null ? webHookQueueCapacity : WebHookQueue.DEFAULT_CAPACITY;
+        }
+
+        /**
+         * @return the names of the Rundeck projects whose executions are polled, separated by spaces or commas
+         */
+        public String getPolledProjects() {
+            return polledProjects;
+        }
+
+        /**
+         * @return the names of the Rundeck projects whose executions are polled (see {@link RundeckExecutionFeedPoller})
+         */
+        public List<String> getPolledProjectList() {
+            List<String> projects = new ArrayList<String>();
+            for (String project : StringUtils.split(StringUtils.defaultString(polledProjects), " ,")) {
+                projects.add(project);
+            }
+            return projects;
+        }
+
+        /**
+         * @return the number of lines of an archived Rundeck output printed on the console before the rest is omitted
+         */
+        public int getLogArchiveHeadLines() {
+            return logArchiveHeadLines != null ? logArchiveHeadLines : 50;
+        }
+
+        /**
+         * @return the number of lines at the end of an archived Rundeck output printed on the console
+         */
+        public int getLogArchiveTailLines() {
+            return logArchiveTailLines != null ? logArchiveTailLines : 200;
         }
     }
 
@@ -556,15 +954,32 @@ public class RundeckNotifier extends Notifier {
 
         private final String executionUrl;
 
+        private volatile ExecutionStatus executionStatus;
+
         public RundeckExecutionBuildBadgeAction(String executionUrl) {
             super();
             this.executionUrl = executionUrl;
         }
 
         public String getDisplayName() {
+            if (executionStatus != null) {
+                return "Rundeck Execution Result : " + executionStatus;
+            }
             return "Rundeck Execution Result";
         }
 
+        /**
+         * @return the final status of the Rundeck execution, or null if we did not wait for it (or if it is not finished
+         *         yet)
+         */
+        public ExecutionStatus getExecutionStatus() {
+            return executionStatus;
+        }
+
+        public void setExecutionStatus(ExecutionStatus executionStatus) {
+            this.executionStatus = executionStatus;
+        }
+
         public String getIconFileName() {
             return "/plugin/rundeck/images/rundeck_24x24.png";
         }
@@ -575,4 +990,68 @@ public class RundeckNotifier extends Notifier {
 
     }
 
+    /**
+     * {@link ExecutionListener} reporting the result of a Rundeck execution on a build which did not wait for it. The
+     * build is usually completed by then, so its result is never changed (Jenkins, and the other plugins, have already
+     * seen it) : the status of the execution is displayed on the badge, and a failure is also added to the description
+     * of the build when "Should fail the build" is checked.
+     */
+    private static class BackgroundCompletionListener implements ExecutionListener {
+
+        private final AbstractBuild<?, ?> build;
+
+        private final RundeckExecutionBuildBadgeAction badge;
+
+        private final boolean shouldFailTheBuild;
+
+        public BackgroundCompletionListener(AbstractBuild<?, ?> build, RundeckExecutionBuildBadgeAction badge,
+                boolean shouldFailTheBuild) {
+            this.build = build;
+            this.badge = badge;
+            this.shouldFailTheBuild = shouldFailTheBuild;
+        }
+
+        public void onFinished(RundeckExecution execution) {
+            badge.setExecutionStatus(execution.getStatus());
+            if (ExecutionStatus.FAILED.equals(execution.getStatus())
+                || ExecutionStatus.ABORTED.equals(execution.getStatus())) {
+                LOGGER.warning("Rundeck execution #" + execution.getId() + " started by " + build.getFullDisplayName()
+                               + " finished with status : " + execution.getStatus());
+                if (shouldFailTheBuild) {
+                    describe("Rundeck execution #" + execution.getId() + " : " + execution.getStatus());
+                    return;
+                }
+            }
+            save();
+        }
+
+        public void onError(RundeckApiException error) {
+            LOGGER.log(Level.WARNING, "Failed to get the result of the Rundeck execution for "
+                                      + build.getFullDisplayName(), error);
+            if (shouldFailTheBuild) {
+                describe("Failed to get the result of the Rundeck execution : " + error.getMessage());
+            }
+        }
+
+        /**
+         * Add the given message to the description of the build (and save it)
+         */
+        private void describe(String message) {
+            String description = build.getDescription();
+            try {
+                build.setDescription(StringUtils.isBlank(description) ? message : description + "<br>" + message);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to save " + build.getFullDisplayName(), e);
+            }
+        }
+
+        private void save() {
+            try {
+                build.save();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to save " + build.getFullDisplayName(), e);
+            }
+        }
+    }
+
 }
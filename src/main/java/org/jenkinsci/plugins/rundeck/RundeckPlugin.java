@@ -2,6 +2,7 @@ package org.jenkinsci.plugins.rundeck;
 
 import hudson.Extension;
 import hudson.Plugin;
+import hudson.model.Hudson;
 
 /**
  * Entry point for the Rundeck plugin
@@ -11,6 +12,9 @@ import hudson.Plugin;
 @Extension
 public class RundeckPlugin extends Plugin {
 
+    /** Maximum delay for the notifications being dispatched when we stop, in milliseconds */
+    private static final long WEBHOOK_SHUTDOWN_TIMEOUT = 10000;
+
     private OptionProvider optionProvider;
 
     private WebHookListener webHookListener;
@@ -22,6 +26,19 @@ public class RundeckPlugin extends Plugin {
         webHookListener = new WebHookListener();
     }
 
+    @Override
+    public void stop() throws Exception {
+        RundeckNotifier.RundeckDescriptor notifierDescriptor = Hudson.getInstance()
+                                                                     .getDescriptorByType(RundeckNotifier.RundeckDescriptor.class);
+        if (notifierDescriptor != null) {
+            // the notifications being dispatched still record it in the journal
+            notifierDescriptor.getWebHookQueue().shutdown(WEBHOOK_SHUTDOWN_TIMEOUT);
+            notifierDescriptor.getWebHookJournal().close();
+            notifierDescriptor.getExecutionPoller().shutdown();
+        }
+        super.stop();
+    }
+
     public OptionProvider getOptions() {
         return optionProvider;
     }
@@ -3,17 +3,26 @@ package org.jenkinsci.plugins.rundeck;
 import hudson.Extension;
 import hudson.model.Item;
 import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.model.listeners.ItemListener;
 import hudson.triggers.Trigger;
 import hudson.triggers.TriggerDescriptor;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.StaplerRequest;
 import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
 import org.rundeck.api.domain.RundeckJob;
 
 /**
@@ -29,11 +38,62 @@ public class RundeckTrigger extends Trigger<AbstractProject<?, ?>> {
 
     private final List<String> executionStatuses;
 
-    @DataBoundConstructor
+    /** Schedule only one build for the executions of the same Rundeck job received in a single notification */
+    private final Boolean coalesceExecutions;
+
+    /** Compiled version of the executionStatuses */
+    private transient volatile Set<ExecutionStatus> statusesFilter;
+
+    /** Compiled version of the jobsIdentifiers */
+    private transient volatile JobIdentifierTrie<String> jobsFilter;
+
     public RundeckTrigger(Boolean filterJobs, List<String> jobsIdentifiers, List<String> executionStatuses) {
+        this(filterJobs, jobsIdentifiers, executionStatuses, false);
+    }
+
+    @DataBoundConstructor
+    public RundeckTrigger(Boolean filterJobs, List<String> jobsIdentifiers, List<String> executionStatuses,
+            Boolean coalesceExecutions) {
         this.filterJobs = filterJobs != null ? filterJobs : false;
         this.jobsIdentifiers = jobsIdentifiers != null ? jobsIdentifiers : new ArrayList<String>();
         this.executionStatuses = executionStatuses != null ? executionStatuses : Arrays.asList("SUCCEEDED");
+        this.coalesceExecutions = coalesceExecutions != null ? coalesceExecutions : false;
+        compileFilters();
+    }
+
+    /**
+     * Compile the configuration into the structures used for matching the notifications : called once, when the
+     * trigger is created or loaded
+     */
+    private void compileFilters() {
+        Set<ExecutionStatus> statuses = EnumSet.noneOf(ExecutionStatus.class);
+        for (String status : executionStatuses) {
+            try {
+                statuses.add(ExecutionStatus.valueOf(StringUtils.trimToEmpty(status).toUpperCase(Locale.ENGLISH)));
+            } catch (IllegalArgumentException e) {
+                // unknown status, never matches
+            }
+        }
+        JobIdentifierTrie<String> jobs = new JobIdentifierTrie<String>();
+        for (String jobIdentifier : jobsIdentifiers) {
+            jobs.put(jobIdentifier, jobIdentifier);
+        }
+        statusesFilter = statuses;
+        jobsFilter = jobs;
+    }
+
+    @Override
+    public void start(AbstractProject<?, ?> project, boolean newInstance) {
+        super.start(project, newInstance);
+        getDescriptor().getIndex().register(project, this);
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (job != null) {
+            getDescriptor().getIndex().unregister(job, this);
+        }
     }
 
     /**
@@ -42,56 +102,79 @@ public class RundeckTrigger extends Trigger<AbstractProject<?, ?>> {
      * @param execution at the origin of the notification
      */
     public void onNotification(RundeckExecution execution) {
-        if (shouldScheduleBuild(execution)) {
-            job.scheduleBuild(new RundeckCause(execution));
-        }
+        onNotifications(Collections.singletonList(execution));
     }
 
     /**
-     * Filter notifications based on the {@link RundeckExecution} and the trigger configuration
+     * Called when we receive a batch of Rundeck notifications (all the executions of a single payload). If the trigger
+     * is configured to coalesce them, executions of the same Rundeck job only schedule one build, for the latest one.
      * 
-     * @param execution at the origin of the notification
-     * @return true if we should schedule a new build, false otherwise
+     * @param executions at the origin of the notifications, in the order of the payload
      */
-    private boolean shouldScheduleBuild(RundeckExecution execution) {
-        if (!executionStatuses.contains(execution.getStatus().toString())) {
-            return false;
+    public void onNotifications(List<RundeckExecution> executions) {
+        Map<Object, RundeckExecution> latestByJob = new LinkedHashMap<Object, RundeckExecution>();
+        for (RundeckExecution execution : executions) {
+            if (!shouldScheduleBuild(execution)) {
+                continue;
+            }
+            Object key = getCoalescingKey(execution);
+            RundeckExecution previous = latestByJob.get(key);
+            if (previous == null || previous.getId() == null || execution.getId() == null
+                || execution.getId() > previous.getId()) {
+                latestByJob.put(key, execution);
+            }
         }
-        if (!filterJobs) {
-            return true;
+        for (RundeckExecution execution : latestByJob.values()) {
+            scheduleBuild(execution);
         }
-        for (String jobIdentifier : jobsIdentifiers) {
-            if (identifierMatchesJob(jobIdentifier, execution.getJob())) {
-                return true;
-            }
+    }
+
+    /**
+     * @param execution at the origin of a notification
+     * @return the key of the job of the given execution if we coalesce the executions of the same job, or the
+     *         execution itself otherwise (ad-hoc executions, jobs we can't identify)
+     */
+    private Object getCoalescingKey(RundeckExecution execution) {
+        RundeckJob rundeckJob = execution.getJob();
+        if (!Boolean.TRUE.equals(coalesceExecutions) || rundeckJob == null) {
+            return execution;
         }
-        return false;
+        if (StringUtils.isNotBlank(rundeckJob.getId())) {
+            return "job:" + rundeckJob.getId();
+        }
+        if (StringUtils.isNotBlank(rundeckJob.getProject()) && StringUtils.isNotBlank(rundeckJob.getName())) {
+            return "reference:" + rundeckJob.getProject() + ":" + rundeckJob.getFullName();
+        }
+        return execution;
     }
 
     /**
-     * Check if the given jobIdentifier matches (= identifies) the given job
+     * Schedule a build of our project for the given execution
      * 
-     * @param jobIdentifier could be either a job's UUID, or a reference to a job in the format "project:group/job"
-     * @param job to test
-     * @return true if it matches, false otherwise
+     * @param execution at the origin of the notification
      */
-    private boolean identifierMatchesJob(String jobIdentifier, RundeckJob job) {
-        if (job == null || StringUtils.isBlank(jobIdentifier)) {
-            return false;
-        }
+    void scheduleBuild(RundeckExecution execution) {
+        job.scheduleBuild(new RundeckCause(execution));
+    }
 
-        // UUID
-        if (StringUtils.equalsIgnoreCase(job.getId(), jobIdentifier)) {
-            return true;
+    /**
+     * Filter notifications based on the {@link RundeckExecution} and the trigger configuration
+     * 
+     * @param execution at the origin of the notification
+     * @return true if we should schedule a new build, false otherwise
+     */
+    private boolean shouldScheduleBuild(RundeckExecution execution) {
+        if (jobsFilter == null) {
+            // loaded from disk
+            compileFilters();
         }
-
-        // "project:group/job" reference
-        String jobReference = job.getProject() + ":" + job.getFullName();
-        if (StringUtils.equalsIgnoreCase(jobReference, jobIdentifier)) {
+        if (!statusesFilter.contains(execution.getStatus())) {
+            return false;
+        }
+        if (!filterJobs) {
             return true;
         }
-
-        return false;
+        return jobsFilter.matches(execution.getJob());
     }
 
     public Boolean getFilterJobs() {
@@ -106,6 +189,10 @@ public class RundeckTrigger extends Trigger<AbstractProject<?, ?>> {
         return executionStatuses;
     }
 
+    public Boolean getCoalesceExecutions() {
+        return coalesceExecutions;
+    }
+
     @Override
     public RundeckDescriptor getDescriptor() {
         return (RundeckDescriptor) super.getDescriptor();
@@ -114,6 +201,8 @@ public class RundeckTrigger extends Trigger<AbstractProject<?, ?>> {
     @Extension
     public static class RundeckDescriptor extends TriggerDescriptor {
 
+        private final transient RundeckTriggerIndex index = new RundeckTriggerIndex();
+
         public RundeckDescriptor() {
             super();
             load();
@@ -123,7 +212,8 @@ public class RundeckTrigger extends Trigger<AbstractProject<?, ?>> {
         public Trigger<?> newInstance(StaplerRequest req, JSONObject formData) throws FormException {
             return new RundeckTrigger(formData.getJSONObject("filterJobs").getBoolean("value"),
                                       bindJSONToList(formData.getJSONObject("filterJobs").get("jobsIdentifiers")),
-                                      bindJSONToList(formData.get("executionStatuses")));
+                                      bindJSONToList(formData.get("executionStatuses")),
+                                      formData.optBoolean("coalesceExecutions"));
         }
 
         @Override
@@ -136,6 +226,10 @@ public class RundeckTrigger extends Trigger<AbstractProject<?, ?>> {
             return "Build when we receive a notification from Rundeck";
         }
 
+        public RundeckTriggerIndex getIndex() {
+            return index;
+        }
+
         /**
          * Simplistic version of StaplerRequest.bindJSONToList, in order to use a List of String
          */
@@ -157,4 +251,51 @@ public class RundeckTrigger extends Trigger<AbstractProject<?, ?>> {
             return result;
         }
     }
+
+    /**
+     * Keeps the {@link RundeckTriggerIndex} up to date when projects are created, copied, renamed or deleted (updates
+     * of a project configuration stop the old triggers and start the new ones).
+     */
+    @Extension
+    public static class ItemListenerImpl extends ItemListener {
+
+        @Override
+        public void onCreated(Item item) {
+            reindex(item);
+        }
+
+        @Override
+        public void onCopied(Item src, Item item) {
+            reindex(item);
+        }
+
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            reindex(item);
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            if (item instanceof AbstractProject) {
+                getIndex().unregister((AbstractProject<?, ?>) item);
+            }
+        }
+
+        private void reindex(Item item) {
+            if (!(item instanceof AbstractProject)) {
+                return;
+            }
+            AbstractProject<?, ?> project = (AbstractProject<?, ?>) item;
+            RundeckTrigger trigger = project.getTrigger(RundeckTrigger.class);
+            if (trigger != null) {
+                getIndex().register(project, trigger);
+            } else {
+                getIndex().unregister(project);
+            }
+        }
+
+        private RundeckTriggerIndex getIndex() {
+            return Hudson.getInstance().getDescriptorByType(RundeckDescriptor.class).getIndex();
+        }
+    }
 }
@@ -0,0 +1,180 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.model.AbstractProject;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.domain.RundeckJob;
+
+/**
+ * Index of the active {@link RundeckTrigger}s, by Rundeck job identifier (UUID or "project:group/name" reference), so
+ * that a notification is only dispatched to the triggers which may be interested in it, without looking at every
+ * Jenkins project. Triggers which don't filter on Rundeck jobs are kept in a separate list, and wildcard identifiers
+ * (such as "project:group/*") are served from a {@link JobIdentifierTrie}.<br>
+ * Triggers are registered when they are started (see {@link RundeckTrigger#start(AbstractProject, boolean)}), and
+ * unregistered when they are stopped or when their project is deleted (see {@link RundeckTrigger.ItemListenerImpl}).
+ */
+public class RundeckTriggerIndex {
+
+    /** Active trigger of each project (at most one {@link RundeckTrigger} per project) */
+    private final Map<AbstractProject<?, ?>, RundeckTrigger> byProject = new HashMap<AbstractProject<?, ?>, RundeckTrigger>();
+
+    /** Triggers filtering on a job, by lower-cased identifier */
+    private final Map<String, Set<RundeckTrigger>> byIdentifier = new HashMap<String, Set<RundeckTrigger>>();
+
+    /** Triggers interested in all jobs */
+    private final Set<RundeckTrigger> unfiltered = new LinkedHashSet<RundeckTrigger>();
+
+    /** Triggers with wildcard identifiers */
+    private final Set<RundeckTrigger> wildcards = new LinkedHashSet<RundeckTrigger>();
+
+    /** Wildcard identifiers of the triggers, rebuilt when a trigger with wildcards is (un)registered */
+    private JobIdentifierTrie<RundeckTrigger> wildcardsTrie = new JobIdentifierTrie<RundeckTrigger>();
+
+    /**
+     * Register the given trigger of the given project, replacing the previous trigger of this project if any
+     *
+     * @param project owning the trigger
+     * @param trigger to register
+     */
+    public synchronized void register(AbstractProject<?, ?> project, RundeckTrigger trigger) {
+        unregister(project);
+        byProject.put(project, trigger);
+        if (!Boolean.TRUE.equals(trigger.getFilterJobs())) {
+            unfiltered.add(trigger);
+            return;
+        }
+        for (String key : getKeys(trigger)) {
+            Set<RundeckTrigger> triggers = byIdentifier.get(key);
+            if (triggers == null) {
+                triggers = new LinkedHashSet<RundeckTrigger>();
+                byIdentifier.put(key, triggers);
+            }
+            triggers.add(trigger);
+        }
+        if (hasWildcards(trigger)) {
+            wildcards.add(trigger);
+            rebuildWildcardsTrie();
+        }
+    }
+
+    /**
+     * Unregister the given trigger, only if it is still the active trigger of the given project
+     *
+     * @param project owning the trigger
+     * @param trigger to unregister
+     */
+    public synchronized void unregister(AbstractProject<?, ?> project, RundeckTrigger trigger) {
+        if (byProject.get(project) == trigger) {
+            unregister(project);
+        }
+    }
+
+    /**
+     * Unregister the trigger of the given project, if any
+     *
+     * @param project which has been deleted, or whose trigger has been removed
+     */
+    public synchronized void unregister(AbstractProject<?, ?> project) {
+        RundeckTrigger trigger = byProject.remove(project);
+        if (trigger == null) {
+            return;
+        }
+        unfiltered.remove(trigger);
+        if (wildcards.remove(trigger)) {
+            rebuildWildcardsTrie();
+        }
+        for (String key : getKeys(trigger)) {
+            Set<RundeckTrigger> triggers = byIdentifier.get(key);
+            if (triggers != null) {
+                triggers.remove(trigger);
+                if (triggers.isEmpty()) {
+                    byIdentifier.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the triggers which may be interested in an execution of the given job : the ones filtering on its UUID or
+     * reference, and the ones which don't filter on jobs.
+     *
+     * @param job of the notified execution - may be null
+     * @return a copy of the matching triggers (each trigger still applies its own filters)
+     */
+    public synchronized Collection<RundeckTrigger> findTriggers(RundeckJob job) {
+        Set<RundeckTrigger> result = new LinkedHashSet<RundeckTrigger>(unfiltered);
+        if (job != null) {
+            addAll(result, job.getId());
+            addAll(result, job.getProject() + ":" + job.getFullName());
+            wildcardsTrie.collect(job, result);
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of registered triggers
+     */
+    public synchronized int getSize() {
+        return byProject.size();
+    }
+
+    private void addAll(Set<RundeckTrigger> result, String identifier) {
+        if (StringUtils.isBlank(identifier)) {
+            return;
+        }
+        Set<RundeckTrigger> triggers = byIdentifier.get(identifier.toLowerCase(Locale.ENGLISH));
+        if (triggers != null) {
+            result.addAll(triggers);
+        }
+    }
+
+    private void rebuildWildcardsTrie() {
+        JobIdentifierTrie<RundeckTrigger> trie = new JobIdentifierTrie<RundeckTrigger>();
+        for (RundeckTrigger trigger : wildcards) {
+            for (String identifier : trigger.getJobsIdentifiers()) {
+                if (JobIdentifierTrie.isWildcard(identifier)) {
+                    trie.put(identifier, trigger);
+                }
+            }
+        }
+        wildcardsTrie = trie;
+    }
+
+    private static boolean hasWildcards(RundeckTrigger trigger) {
+        if (trigger.getJobsIdentifiers() == null) {
+            return false;
+        }
+        for (String identifier : trigger.getJobsIdentifiers()) {
+            if (JobIdentifierTrie.isWildcard(identifier)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the (lower-cased) keys of the exact (non-wildcard) identifiers of the given trigger in the index
+     */
+    private static Collection<String> getKeys(RundeckTrigger trigger) {
+        List<String> identifiers = trigger.getJobsIdentifiers();
+        if (identifiers == null) {
+            return new ArrayList<String>();
+        }
+        Set<String> keys = new HashSet<String>();
+        for (String identifier : identifiers) {
+            if (StringUtils.isNotBlank(identifier) && !JobIdentifierTrie.isWildcard(identifier)) {
+                keys.add(identifier.trim().toLowerCase(Locale.ENGLISH));
+            }
+        }
+        return keys;
+    }
+
+}
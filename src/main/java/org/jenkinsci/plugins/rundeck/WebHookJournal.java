@@ -0,0 +1,480 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Append-only on-disk journal of the WebHook notifications received, so that the notifications not dispatched yet
+ * when Jenkins stops can be replayed at startup (and that an administrator can re-dispatch the notifications of a
+ * given period).<br>
+ * The journal is made of segment files, each one holding a sequence of binary records : a "received" record (with the
+ * raw body of the notification) when a notification is accepted, and a "dispatched" record once it has been processed.
+ * Records are flushed to the OS on each write, and synced to the disk periodically. Segments are deleted once all
+ * their notifications have been dispatched and the retention period has elapsed : the notifications not dispatched
+ * yet are tracked in memory, per segment, so that deleting segments does not read them again.
+ */
+public class WebHookJournal {
+
+    private static final Logger LOGGER = Logger.getLogger(WebHookJournal.class.getName());
+
+    /** Default duration during which the notifications are kept (for replaying them), in milliseconds */
+    public static final long DEFAULT_RETENTION = 24 * 60 * 60 * 1000L;
+
+    /** Size after which we start a new segment, in bytes */
+    static final long SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    /** Maximum size of a notification payload, in bytes : larger records are considered as corrupted when read */
+    public static final int MAX_PAYLOAD_SIZE = 1024 * 1024;
+
+    /** Delay between 2 syncs to the disk, in milliseconds */
+    private static final long FSYNC_INTERVAL = 1000;
+
+    /** Delay between 2 compactions, in milliseconds */
+    private static final long COMPACTION_INTERVAL = 10 * 60 * 1000;
+
+    private static final byte RECEIVED = 1;
+
+    private static final byte DISPATCHED = 2;
+
+    private static final String SEGMENT_PREFIX = "webhooks-";
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final File directory;
+
+    private final long retention;
+
+    private long lastSequence = 0;
+
+    private File currentSegment;
+
+    private FileOutputStream currentFile;
+
+    private DataOutputStream output;
+
+    private boolean dirty = false;
+
+    /** State of each segment, by first sequence number - null until the existing segments have been read */
+    private TreeMap<Long, SegmentState> segmentStates;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param directory in which the segments are stored (created if needed)
+     * @param retention duration during which the notifications are kept, in milliseconds
+     */
+    public WebHookJournal(File directory, long retention) {
+        this.directory = directory;
+        this.retention = retention;
+    }
+
+    /**
+     * Record a notification we just accepted
+     *
+     * @param payload raw body of the notification
+     * @return the sequence number of the notification in the journal
+     * @throws IOException in case of error while writing the journal, or if the payload is larger than
+     *             {@link #MAX_PAYLOAD_SIZE}
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        if (payload.length > MAX_PAYLOAD_SIZE) {
+            throw new IOException("Notification of " + payload.length + " bytes, larger than the maximum of "
+                                  + MAX_PAYLOAD_SIZE + " bytes");
+        }
+        DataOutputStream out = getOutput();
+        long sequence = ++lastSequence;
+        long timestamp = System.currentTimeMillis();
+        out.writeByte(RECEIVED);
+        out.writeLong(sequence);
+        out.writeLong(timestamp);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+        dirty = true;
+        getSegmentState(sequence).received(sequence, timestamp);
+        return sequence;
+    }
+
+    /**
+     * Record that the given notification has been processed (or abandoned), so that it won't be replayed
+     *
+     * @param sequence of the notification in the journal
+     */
+    public synchronized void markDispatched(long sequence) {
+        try {
+            DataOutputStream out = getOutput();
+            out.writeByte(DISPATCHED);
+            out.writeLong(sequence);
+            out.flush();
+            dirty = true;
+            SegmentState state = getSegmentState(sequence);
+            if (state != null) {
+                state.undispatched.remove(sequence);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to write the Rundeck WebHook journal", e);
+        }
+    }
+
+    /**
+     * @return the notifications received but not dispatched, in the order they were received
+     * @throws IOException in case of error while reading the journal
+     */
+    public synchronized List<Entry> readUndispatched() throws IOException {
+        Set<Long> dispatched = new HashSet<Long>();
+        List<Entry> entries = new ArrayList<Entry>();
+        for (File segment : listSegments()) {
+            readSegment(segment, entries, dispatched);
+        }
+        List<Entry> result = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            if (!dispatched.contains(entry.getSequence())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param from start of the period (inclusive), in milliseconds
+     * @param to end of the period (exclusive), in milliseconds
+     * @return the notifications received in the given period (dispatched or not), in the order they were received
+     * @throws IOException in case of error while reading the journal
+     */
+    public synchronized List<Entry> read(long from, long to) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (File segment : listSegments()) {
+            readSegment(segment, entries, new HashSet<Long>());
+        }
+        List<Entry> result = new ArrayList<Entry>();
+        for (Entry entry : entries) {
+            if (entry.getTimestamp() >= from && entry.getTimestamp() < to) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Delete the oldest segments (except the current one) whose notifications have all been dispatched, and are older
+     * than the retention period
+     *
+     * @return the number of segments deleted
+     * @throws IOException in case of error while reading the journal
+     */
+    public synchronized int compact() throws IOException {
+        loadSegmentStates();
+        long limit = System.currentTimeMillis() - retention;
+        int deleted = 0;
+        // only delete the oldest segments : the "dispatched" records of a segment we keep may be in the next ones
+        for (Iterator<SegmentState> it = segmentStates.values().iterator(); it.hasNext();) {
+            SegmentState state = it.next();
+            if (state.file.equals(currentSegment) || !state.undispatched.isEmpty() || state.lastReceived >= limit
+                || (state.file.exists() && !state.file.delete())) {
+                break;
+            }
+            it.remove();
+            deleted++;
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    public synchronized int getSegmentCount() {
+        return listSegments().length;
+    }
+
+    /**
+     * @return the sequence number of the last notification recorded
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Sync and close the current segment, and stop the background tasks
+     */
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        closeSegment();
+    }
+
+    /**
+     * @return the stream for writing to the current segment, opening a new segment if needed
+     */
+    private DataOutputStream getOutput() throws IOException {
+        if (output != null && output.size() < SEGMENT_SIZE) {
+            return output;
+        }
+        closeSegment();
+        if (currentSegment == null) {
+            // first write : find the last sequence number used
+            directory.mkdirs();
+            loadSegmentStates();
+            startBackgroundTasks();
+        }
+        currentSegment = new File(directory, String.format("%s%019d%s", SEGMENT_PREFIX, lastSequence + 1,
+                                                           SEGMENT_SUFFIX));
+        if (!segmentStates.containsKey(lastSequence + 1)) {
+            segmentStates.put(lastSequence + 1, new SegmentState(currentSegment));
+        }
+        currentFile = new FileOutputStream(currentSegment, true);
+        output = new DataOutputStream(new BufferedOutputStream(currentFile));
+        return output;
+    }
+
+    private void closeSegment() {
+        if (output == null) {
+            return;
+        }
+        try {
+            output.flush();
+            currentFile.getFD().sync();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to sync the Rundeck WebHook journal", e);
+        }
+        IOUtils.closeQuietly(output);
+        output = null;
+        currentFile = null;
+        dirty = false;
+    }
+
+    /**
+     * Sync the current segment to the disk, if we wrote something since the last sync
+     */
+    private synchronized void sync() {
+        if (!dirty || currentFile == null) {
+            return;
+        }
+        try {
+            currentFile.getChannel().force(false);
+            dirty = false;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to sync the Rundeck WebHook journal", e);
+        }
+    }
+
+    private void startBackgroundTasks() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Rundeck WebHook journal");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+
+            public void run() {
+                sync();
+            }
+        }, FSYNC_INTERVAL, FSYNC_INTERVAL, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+
+            public void run() {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to compact the Rundeck WebHook journal", e);
+                }
+            }
+        }, COMPACTION_INTERVAL, COMPACTION_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Read the existing segments once, to find the last sequence number used and the notifications not dispatched yet
+     */
+    private void loadSegmentStates() throws IOException {
+        if (segmentStates != null) {
+            return;
+        }
+        TreeMap<Long, SegmentState> states = new TreeMap<Long, SegmentState>();
+        Set<Long> dispatched = new HashSet<Long>();
+        for (File segment : listSegments()) {
+            Long firstSequence = getFirstSequence(segment);
+            if (firstSequence == null) {
+                // not written by us
+                continue;
+            }
+            SegmentState state = new SegmentState(segment);
+            List<Entry> entries = new ArrayList<Entry>();
+            readSegment(segment, entries, dispatched);
+            for (Entry entry : entries) {
+                state.received(entry.getSequence(), entry.getTimestamp());
+                lastSequence = Math.max(lastSequence, entry.getSequence());
+            }
+            states.put(firstSequence, state);
+        }
+        for (SegmentState state : states.values()) {
+            state.undispatched.removeAll(dispatched);
+        }
+        segmentStates = states;
+    }
+
+    /**
+     * @return the state of the segment holding the given notification, or null if it has been deleted
+     */
+    private SegmentState getSegmentState(long sequence) {
+        Map.Entry<Long, SegmentState> entry = segmentStates.floorEntry(sequence);
+        return entry != null ? entry.getValue() : null;
+    }
+
+    /**
+     * @return the first sequence number of the given segment, from its name - or null if it is not a valid name
+     */
+    private static Long getFirstSequence(File segment) {
+        String name = segment.getName();
+        try {
+            return Long.valueOf(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the segment files, sorted by first sequence number
+     */
+    private File[] listSegments() {
+        File[] segments = directory.listFiles(new FileFilter() {
+
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().startsWith(SEGMENT_PREFIX)
+                       && file.getName().endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        // fixed-width sequence numbers, so the names sort in order
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Read the records of the given segment. A truncated record at the end (interrupted write) is ignored.
+     *
+     * @param entries to which the notifications received are added
+     * @param dispatched to which the sequence numbers of the notifications dispatched are added
+     */
+    private void readSegment(File segment, List<Entry> entries, Set<Long> dispatched) throws IOException {
+        if (segment.equals(currentSegment) && output != null) {
+            output.flush();
+        }
+        DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)));
+        try {
+            while (true) {
+                byte type = input.readByte();
+                long sequence = input.readLong();
+                if (type == DISPATCHED) {
+                    dispatched.add(sequence);
+                } else if (type == RECEIVED) {
+                    long timestamp = input.readLong();
+                    int length = input.readInt();
+                    if (length < 0 || length > MAX_PAYLOAD_SIZE) {
+                        LOGGER.warning("Corrupted record in the Rundeck WebHook journal " + segment
+                                       + ", ignoring the rest");
+                        return;
+                    }
+                    byte[] payload = new byte[length];
+                    input.readFully(payload);
+                    entries.add(new Entry(sequence, timestamp, payload));
+                } else {
+                    LOGGER.warning("Unexpected record in the Rundeck WebHook journal " + segment + ", ignoring the rest");
+                    return;
+                }
+            }
+        } catch (EOFException e) {
+            // end of the segment
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * What we need to know about a segment for deleting it, kept up to date in memory
+     */
+    private static class SegmentState {
+
+        private final File file;
+
+        /** Sequence numbers of the notifications of the segment which have not been dispatched yet */
+        private final Set<Long> undispatched = new HashSet<Long>();
+
+        /** Date at which the last notification of the segment was received, in milliseconds */
+        private long lastReceived = 0;
+
+        private SegmentState(File file) {
+            this.file = file;
+        }
+
+        private void received(long sequence, long timestamp) {
+            undispatched.add(sequence);
+            lastReceived = Math.max(lastReceived, timestamp);
+        }
+    }
+
+    /**
+     * A notification recorded in the journal
+     */
+    public static class Entry {
+
+        private final long sequence;
+
+        private final long timestamp;
+
+        private final byte[] payload;
+
+        private Entry(long sequence, long timestamp, byte[] payload) {
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+            this.payload = payload;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * @return the date at which the notification was received, in milliseconds
+         */
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        /**
+         * @return the raw body of the notification
+         */
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+
+}
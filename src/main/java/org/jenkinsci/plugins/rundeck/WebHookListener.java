@@ -1,43 +1,307 @@
 package org.jenkinsci.plugins.rundeck;
 
-import hudson.model.AbstractProject;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import hudson.model.Hudson;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.io.IOUtils;
-import org.dom4j.Document;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.plugins.rundeck.RundeckNotifier.RundeckDescriptor;
+import org.jenkinsci.plugins.rundeck.WebHookJournal.Entry;
+import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
+import org.rundeck.api.RundeckApiException;
 import org.rundeck.api.domain.RundeckExecution;
-import org.rundeck.api.parser.ExecutionParser;
-import org.rundeck.api.parser.ParserHelper;
 
 /**
- * Listener for Rundeck WebHook notifications (see http://rundeck.org/docs/manual/jobs.html#webhooks), will trigger a
- * build using {@link RundeckTrigger}
+ * Listener for Rundeck WebHook notifications (see http://rundeck.org/docs/manual/jobs.html#webhooks), will complete the
+ * builds waiting for the execution (see {@link RundeckExecutionPoller}) and trigger a build using
+ * {@link RundeckTrigger}.<br>
+ * Accepted notifications are recorded in a {@link WebHookJournal} before being queued, so that the ones not dispatched
+ * yet when Jenkins stops are replayed at startup.
  * 
  * @author Vincent Behar
  */
 public class WebHookListener {
 
+    private static final Logger LOGGER = Logger.getLogger(WebHookListener.class.getName());
+
+    /** Delay after which Rundeck may retry a notification refused because the queue is full, in seconds */
+    private static final int RETRY_AFTER = 5;
+
+    private static final WebHookParser PARSER = new WebHookParser();
+
     public void doIndex(StaplerRequest request, StaplerResponse response) throws IOException {
-        // read request body / parse Rundeck execution
-        Document document = ParserHelper.loadDocument(request.getInputStream());
-        IOUtils.closeQuietly(request.getInputStream());
-        ExecutionParser parser = new ExecutionParser("notification/executions/execution");
-        RundeckExecution execution = parser.parseXmlNode(document);
+        // read request body (refusing the ones we could not journal) / parse Rundeck executions
+        byte[] body;
+        List<RundeckExecution> parsed;
+        try {
+            body = readBody(request, WebHookJournal.MAX_PAYLOAD_SIZE);
+            if (body == null) {
+                response.sendError(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE,
+                                   "Notifications are limited to " + WebHookJournal.MAX_PAYLOAD_SIZE + " bytes");
+                return;
+            }
+            parsed = PARSER.parseAll(new ByteArrayInputStream(body));
+        } catch (RundeckApiException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            return;
+        } finally {
+            IOUtils.closeQuietly(request.getInputStream());
+        }
+
+        // ignore the notifications already received (retried by Rundeck, or duplicated on the way)
+        RundeckDescriptor notifierDescriptor = Hudson.getInstance().getDescriptorByType(RundeckDescriptor.class);
+        ExecutionDedupWindow dedupWindow = notifierDescriptor.getDedupWindow();
+        final List<RundeckExecution> executions = new ArrayList<RundeckExecution>(parsed.size());
+        for (RundeckExecution execution : parsed) {
+            if (dedupWindow.markSeen(execution)) {
+                executions.add(execution);
+            }
+        }
+
+        // record the notification, so that it is not lost if Jenkins stops before it is dispatched
+        WebHookJournal journal = notifierDescriptor.getWebHookJournal();
+        long sequence = -1;
+        if (!executions.isEmpty()) {
+            try {
+                sequence = journal.append(body);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to record a Rundeck WebHook notification in the journal", e);
+            }
+        }
+
+        // dispatch the notification in the background, or ask Rundeck to retry later if we are overloaded
+        boolean queued = executions.isEmpty() || enqueue(notifierDescriptor, executions, sequence);
+        if (!queued) {
+            for (RundeckExecution execution : executions) {
+                dedupWindow.forget(execution);
+            }
+            if (sequence >= 0) {
+                // Rundeck will send it again
+                journal.markDispatched(sequence);
+            }
+            response.setHeader("Retry-After", String.valueOf(RETRY_AFTER));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Too many notifications, retry later");
+            return;
+        }
 
         // write a basic response
         response.setStatus(HttpServletResponse.SC_OK);
         response.setContentType("text/plain");
         response.getWriter().append("Thanks");
+    }
 
-        // notify all registered triggers
-        for (AbstractProject<?, ?> job : Hudson.getInstance().getItems(AbstractProject.class)) {
-            RundeckTrigger trigger = job.getTrigger(RundeckTrigger.class);
-            if (trigger != null) {
-                trigger.onNotification(execution);
+    /**
+     * Re-dispatch the notifications received in the given period (even the ones already dispatched), for example after
+     * fixing the configuration of a trigger : they are queued like the new ones. Reserved to the administrators, and
+     * only with a POST request.
+     *
+     * @param from start of the period (inclusive) : a timestamp in milliseconds, or a "yyyy-MM-dd'T'HH:mm" date
+     * @param to end of the period (exclusive), same format - now if blank
+     */
+    public void doReplay(StaplerRequest request, StaplerResponse response, @QueryParameter("from") String from,
+            @QueryParameter("to") String to) throws IOException {
+        if (!"POST".equals(request.getMethod())) {
+            response.setHeader("Allow", "POST");
+            response.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "POST required");
+            return;
+        }
+        Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+        long fromTime;
+        long toTime;
+        try {
+            fromTime = parseTime(from, -1);
+            toTime = parseTime(to, System.currentTimeMillis());
+        } catch (ParseException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid date : " + e.getMessage());
+            return;
+        }
+        if (fromTime < 0) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "The 'from' parameter is mandatory");
+            return;
+        }
+
+        RundeckDescriptor notifierDescriptor = Hudson.getInstance().getDescriptorByType(RundeckDescriptor.class);
+        int count = 0;
+        for (Entry entry : notifierDescriptor.getWebHookJournal().read(fromTime, toTime)) {
+            List<RundeckExecution> executions = parseEntry(entry);
+            if (executions == null) {
+                continue;
+            }
+            if (!enqueue(notifierDescriptor, executions, -1)) {
+                response.setHeader("Retry-After", String.valueOf(RETRY_AFTER));
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                                   "Too many notifications, " + count + " queued for replay : retry later with from="
+                                           + entry.getTimestamp());
+                return;
             }
+            count++;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("text/plain");
+        response.getWriter().append("Queued " + count + " notification(s) for replay");
+    }
+
+    /**
+     * Replay the notifications which were accepted but not dispatched before Jenkins stopped
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void replayJournal() {
+        RundeckDescriptor notifierDescriptor = Hudson.getInstance().getDescriptorByType(RundeckDescriptor.class);
+        if (notifierDescriptor == null) {
+            return;
+        }
+        WebHookJournal journal = notifierDescriptor.getWebHookJournal();
+        List<Entry> entries;
+        try {
+            entries = journal.readUndispatched();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the Rundeck WebHook journal", e);
+            return;
+        }
+        if (!entries.isEmpty()) {
+            LOGGER.info("Replaying " + entries.size() + " Rundeck WebHook notification(s) not dispatched yet");
+        }
+        for (Entry entry : entries) {
+            List<RundeckExecution> executions = parseEntry(entry);
+            if (executions == null) {
+                journal.markDispatched(entry.getSequence());
+                continue;
+            }
+            for (RundeckExecution execution : executions) {
+                notifierDescriptor.getDedupWindow().markSeen(execution);
+            }
+            if (!enqueue(notifierDescriptor, executions, entry.getSequence())) {
+                // the queue is full : the entry will be replayed at the next startup
+                LOGGER.warning("Rundeck WebHook queue full, notification #" + entry.getSequence()
+                               + " not replayed");
+            }
+        }
+    }
+
+    /**
+     * Queue the dispatch of the given executions, and mark them as dispatched in the journal once done
+     *
+     * @param sequence of the notification in the journal, or -1 if it has not been recorded
+     * @return true if queued, false if the queue is full
+     */
+    private static boolean enqueue(final RundeckDescriptor notifierDescriptor,
+            final List<RundeckExecution> executions, final long sequence) {
+        return notifierDescriptor.getWebHookQueue().offer(new Runnable() {
+
+            public void run() {
+                try {
+                    dispatch(executions);
+                } finally {
+                    if (sequence >= 0) {
+                        notifierDescriptor.getWebHookJournal().markDispatched(sequence);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Read the body of the given request, up to the given size
+     *
+     * @param request with a body
+     * @param maxSize maximum size of the body, in bytes
+     * @return the body, or null if it is larger than the given size
+     * @throws IOException in case of error while reading the request
+     */
+    private static byte[] readBody(StaplerRequest request, int maxSize) throws IOException {
+        if (request.getContentLength() > maxSize) {
+            return null;
+        }
+        InputStream input = request.getInputStream();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(Math.max(request.getContentLength(), 1024));
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            if (body.size() + read > maxSize) {
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * @return the executions of the given notification, or null if it could not be parsed
+     */
+    private static List<RundeckExecution> parseEntry(Entry entry) {
+        try {
+            return PARSER.parseAll(new ByteArrayInputStream(entry.getPayload()));
+        } catch (RundeckApiException e) {
+            LOGGER.log(Level.WARNING, "Invalid notification #" + entry.getSequence()
+                                      + " in the Rundeck WebHook journal", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param value a timestamp in milliseconds, or a "yyyy-MM-dd'T'HH:mm" date
+     * @param defaultValue returned if the value is blank
+     * @return the time in milliseconds
+     */
+    private static long parseTime(String value, long defaultValue) throws ParseException {
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        if (StringUtils.isNumeric(value.trim())) {
+            return Long.parseLong(value.trim());
+        }
+        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm").parse(value.trim()).getTime();
+    }
+
+    /**
+     * Process the executions of a notification as a batch : check the executions the builds are waiting for (the
+     * notification is only a hint, their status is read from the Rundeck API), and trigger builds
+     * (each trigger receives all the executions it is interested in at once, so that it can coalesce them)
+     *
+     * @param executions at the origin of the notification
+     */
+    static void dispatch(List<RundeckExecution> executions) {
+        RundeckDescriptor notifierDescriptor = Hudson.getInstance().getDescriptorByType(RundeckDescriptor.class);
+        RundeckTriggerIndex triggerIndex = Hudson.getInstance()
+                                                 .getDescriptorByType(RundeckTrigger.RundeckDescriptor.class)
+                                                 .getIndex();
+        Map<RundeckTrigger, List<RundeckExecution>> byTrigger = new LinkedHashMap<RundeckTrigger, List<RundeckExecution>>();
+        for (RundeckExecution execution : executions) {
+            // check the execution some builds may be waiting for, and reload what we know about its job
+            if (notifierDescriptor != null) {
+                notifierDescriptor.getExecutionPoller().onNotification(execution);
+                notifierDescriptor.getJobCache().invalidate(execution.getJob());
+            }
+
+            // find the triggers interested in this job
+            for (RundeckTrigger trigger : triggerIndex.findTriggers(execution.getJob())) {
+                List<RundeckExecution> triggerExecutions = byTrigger.get(trigger);
+                if (triggerExecutions == null) {
+                    triggerExecutions = new ArrayList<RundeckExecution>();
+                    byTrigger.put(trigger, triggerExecutions);
+                }
+                triggerExecutions.add(execution);
+            }
+        }
+
+        for (Map.Entry<RundeckTrigger, List<RundeckExecution>> entry : byTrigger.entrySet()) {
+            entry.getKey().onNotifications(entry.getValue());
         }
     }
 
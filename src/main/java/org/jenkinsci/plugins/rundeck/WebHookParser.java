@@ -0,0 +1,231 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.apache.commons.lang.StringUtils;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.domain.RundeckJob;
+
+/**
+ * Streaming (StAX) parser for the body of a Rundeck WebHook notification : reads the executions in a single pass,
+ * without building a DOM. Produces the same {@link RundeckExecution}s as the "notification/executions/execution"
+ * {@link org.rundeck.api.parser.ExecutionParser} of the Rundeck API client.<br>
+ * Instances are thread-safe.
+ */
+public class WebHookParser {
+
+    private final XMLInputFactory factory;
+
+    public WebHookParser() {
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    }
+
+    /**
+     * Parse the first execution of the given notification
+     *
+     * @param input body of the notification (not closed)
+     * @return the execution, never null
+     * @throws RundeckApiException if the body is not a valid notification
+     */
+    public RundeckExecution parse(InputStream input) throws RundeckApiException {
+        return parseAll(input).get(0);
+    }
+
+    /**
+     * Parse all the executions of the given notification (a relay may aggregate several notifications in one payload)
+     *
+     * @param input body of the notification (not closed)
+     * @return the executions, in the order of the payload - never empty
+     * @throws RundeckApiException if the body is not a valid notification
+     */
+    public List<RundeckExecution> parseAll(InputStream input) throws RundeckApiException {
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(input);
+            // notification/executions/execution
+            List<RundeckExecution> executions = new ArrayList<RundeckExecution>();
+            if (nextStartElement(reader, 0) && "notification".equals(reader.getLocalName())
+                && findChild(reader, "executions")) {
+                while (findChild(reader, "execution")) {
+                    executions.add(parseExecution(reader));
+                }
+            }
+            if (executions.isEmpty()) {
+                throw new RundeckApiException("No execution found in the notification");
+            }
+            return executions;
+        } catch (XMLStreamException e) {
+            throw new RundeckApiException("Failed to parse the notification", e);
+        } catch (IllegalArgumentException e) {
+            throw new RundeckApiException("Invalid notification : " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // nothing to do
+                }
+            }
+        }
+    }
+
+    /**
+     * Read the current "execution" element (until its end)
+     */
+    private RundeckExecution parseExecution(XMLStreamReader reader) throws XMLStreamException {
+        RundeckExecution execution = new RundeckExecution();
+        String id = StringUtils.trimToNull(reader.getAttributeValue(null, "id"));
+        execution.setId(id != null ? Long.valueOf(id) : null);
+        execution.setUrl(StringUtils.trimToNull(reader.getAttributeValue(null, "href")));
+        execution.setStatus(parseStatus(reader.getAttributeValue(null, "status")));
+
+        while (nextStartElement(reader, 1)) {
+            String name = reader.getLocalName();
+            if ("user".equals(name)) {
+                execution.setStartedBy(readText(reader));
+            } else if ("abortedby".equals(name)) {
+                execution.setAbortedBy(readText(reader));
+            } else if ("description".equals(name)) {
+                execution.setDescription(readText(reader));
+            } else if ("argstring".equals(name)) {
+                execution.setArgstring(readText(reader));
+            } else if ("date-started".equals(name)) {
+                execution.setStartedAt(readDate(reader));
+            } else if ("date-ended".equals(name)) {
+                execution.setEndedAt(readDate(reader));
+            } else if ("job".equals(name)) {
+                execution.setJob(parseJob(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return execution;
+    }
+
+    /**
+     * @return the matching status, or null if unknown (a status added by a newer Rundeck version, for example) - as the
+     *         ExecutionParser of the Rundeck API client
+     */
+    private ExecutionStatus parseStatus(String status) {
+        status = StringUtils.trimToNull(status);
+        if (status == null) {
+            return null;
+        }
+        try {
+            return ExecutionStatus.valueOf(status.toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read the current "job" element (until its end)
+     */
+    private RundeckJob parseJob(XMLStreamReader reader) throws XMLStreamException {
+        RundeckJob job = new RundeckJob();
+        job.setId(StringUtils.trimToNull(reader.getAttributeValue(null, "id")));
+        String averageDuration = StringUtils.trimToNull(reader.getAttributeValue(null, "averageDuration"));
+        if (averageDuration != null) {
+            job.setAverageDuration(Long.valueOf(averageDuration));
+        }
+
+        while (nextStartElement(reader, 1)) {
+            String name = reader.getLocalName();
+            if ("name".equals(name)) {
+                job.setName(readText(reader));
+            } else if ("group".equals(name)) {
+                job.setGroup(readText(reader));
+            } else if ("project".equals(name)) {
+                job.setProject(readText(reader));
+            } else if ("description".equals(name)) {
+                job.setDescription(readText(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return job;
+    }
+
+    /**
+     * Move to the next child element of the current element
+     *
+     * @param reader positioned on the start of the parent element, or on the end of a previous child
+     * @param name of the wanted child, other children are skipped
+     * @return true if found, false if we reached the end of the parent element
+     */
+    private boolean findChild(XMLStreamReader reader, String name) throws XMLStreamException {
+        while (nextStartElement(reader, 1)) {
+            if (name.equals(reader.getLocalName())) {
+                return true;
+            }
+            skipElement(reader);
+        }
+        return false;
+    }
+
+    /**
+     * Move to the start of the next element, at the given depth relative to the current position
+     *
+     * @param reader positioned on a start element (depth 1 : its first child), or an end element (depth 1 : the next
+     *            sibling of this end element)
+     * @param depth 0 for the next element whatever its depth, 1 for the next child
+     * @return true if we found an element, false if we reached the end of the parent element (or of the document)
+     */
+    private boolean nextStartElement(XMLStreamReader reader, int depth) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT && depth > 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Skip the current element (and all its children) : the reader is left on its end element
+     */
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * @return the trimmed text of the current (text-only) element, or null if blank - the reader is left on its end
+     *         element
+     */
+    private String readText(XMLStreamReader reader) throws XMLStreamException {
+        return StringUtils.trimToNull(reader.getElementText());
+    }
+
+    /**
+     * @return the date of the current element, from its "unixtime" attribute - the reader is left on its end element
+     */
+    private Date readDate(XMLStreamReader reader) throws XMLStreamException {
+        String unixtime = StringUtils.trimToNull(reader.getAttributeValue(null, "unixtime"));
+        skipElement(reader);
+        return unixtime != null ? new Date(Long.valueOf(unixtime)) : null;
+    }
+
+}
@@ -0,0 +1,188 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded in-memory queue of the WebHook notifications waiting to be dispatched, processed by a fixed pool of worker
+ * threads, so that a burst of notifications never ties up the Jenkins request threads : when the queue is full, new
+ * notifications are refused (see {@link WebHookListener}).
+ */
+public class WebHookQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(WebHookQueue.class.getName());
+
+    /** Default number of worker threads */
+    public static final int DEFAULT_WORKERS = 2;
+
+    /** Default maximum number of notifications waiting in the queue */
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+    private ThreadPoolExecutor executor;
+
+    private int workers = DEFAULT_WORKERS;
+
+    private int capacity = DEFAULT_CAPACITY;
+
+    private final AtomicLong accepted = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong processed = new AtomicLong();
+
+    /** Sum of the delays between the enqueuing and the processing of the notifications, in milliseconds */
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * Change the size of the worker pool and of the queue. Notifications already queued are still processed by the
+     * previous workers, the new ones go to the new workers.
+     *
+     * @param workers number of worker threads
+     * @param capacity maximum number of notifications waiting in the queue
+     */
+    public synchronized void configure(int workers, int capacity) {
+        if (executor != null && (workers != this.workers || capacity != this.capacity)) {
+            // the next call to getExecutor() creates the new one, offer() retries if it still had the previous one
+            executor.shutdown();
+            executor = null;
+        }
+        this.workers = workers;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queue the given task, unless the queue is full
+     *
+     * @param task processing a notification
+     * @return true if the task has been queued, false if it has been dropped
+     */
+    public boolean offer(final Runnable task) {
+        final long enqueuedAt = System.currentTimeMillis();
+        Runnable worker = new Runnable() {
+
+            public void run() {
+                recordLatency(System.currentTimeMillis() - enqueuedAt);
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Failed to process a Rundeck WebHook notification", e);
+                } finally {
+                    processed.incrementAndGet();
+                }
+            }
+        };
+        while (true) {
+            ThreadPoolExecutor current = getExecutor();
+            try {
+                current.execute(worker);
+                break;
+            } catch (RejectedExecutionException e) {
+                if (!current.isShutdown()) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                // replaced by configure() meanwhile : not full, retry with the new executor
+            }
+        }
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Stop the workers (for example because Jenkins is shutting down) : the notifications still waiting in the queue
+     * are dropped (the journal replays them at the next startup), and we wait for the ones being processed, at most for
+     * the given time. The workers are started again if a new notification is queued.
+     *
+     * @param timeout in milliseconds
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public void shutdown(long timeout) throws InterruptedException {
+        ThreadPoolExecutor current;
+        synchronized (this) {
+            current = executor;
+            executor = null;
+        }
+        if (current == null) {
+            return;
+        }
+        current.shutdown();
+        current.getQueue().drainTo(new ArrayList<Runnable>());
+        current.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    private void recordLatency(long latency) {
+        totalLatency.addAndGet(latency);
+        long max = maxLatency.get();
+        while (latency > max && !maxLatency.compareAndSet(max, latency)) {
+            max = maxLatency.get();
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(workers,
+                                              workers,
+                                              60,
+                                              TimeUnit.SECONDS,
+                                              new ArrayBlockingQueue<Runnable>(capacity),
+                                              new ThreadFactory() {
+
+                                                  public Thread newThread(Runnable r) {
+                                                      Thread thread = new Thread(r, "Rundeck WebHook worker #"
+                                                                                    + THREAD_COUNTER.incrementAndGet());
+                                                      thread.setDaemon(true);
+                                                      return thread;
+                                                  }
+                                              });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * @return the number of notifications waiting in the queue
+     */
+    public synchronized int getDepth() {
+        return executor != null ? executor.getQueue().size() : 0;
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * @return the average delay between the enqueuing and the processing of a notification, in milliseconds
+     */
+    public long getAverageLatency() {
+        long count = processed.get();
+        return count > 0 ? totalLatency.get() / count : 0;
+    }
+
+    /**
+     * @return the maximum delay between the enqueuing and the processing of a notification, in milliseconds
+     */
+    public long getMaxLatency() {
+        return maxLatency.get();
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleProject;
+import hudson.tasks.ArtifactArchiver;
+import java.io.IOException;
+import org.jvnet.hudson.test.HudsonTestCase;
+import org.jvnet.hudson.test.TestBuilder;
+
+/**
+ * Base class of the tests which need projects archiving artifacts
+ */
+public abstract class AbstractArtifactTestCase extends HudsonTestCase {
+
+    /**
+     * Create a project archiving "app-N.jar" (N being the build number), "readme.txt", and "even.txt" for the builds
+     * with an even number, and build it
+     *
+     * @param builds number of builds
+     * @return the new project
+     * @throws Exception in case of error while building the project
+     */
+    protected FreeStyleProject createProjectWithArtifacts(int builds) throws Exception {
+        FreeStyleProject project = createFreeStyleProject();
+        project.getBuildersList().add(new TestBuilder() {
+
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+                    throws InterruptedException, IOException {
+                build.getWorkspace().deleteContents();
+                build.getWorkspace().child("app-" + build.getNumber() + ".jar").write("jar", "UTF-8");
+                build.getWorkspace().child("readme.txt").write("readme", "UTF-8");
+                if (build.getNumber() % 2 == 0) {
+                    build.getWorkspace().child("even.txt").write("even", "UTF-8");
+                }
+                return true;
+            }
+        });
+        project.getPublishersList().add(new ArtifactArchiver("*.jar,*.txt", null, false));
+        for (int i = 0; i < builds; i++) {
+            assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+        }
+        return project;
+    }
+
+}
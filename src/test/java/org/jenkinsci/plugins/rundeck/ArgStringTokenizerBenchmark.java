@@ -0,0 +1,88 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Compares the {@link ArgStringTokenizer} with the previous split + regex parsing of the argstrings, on the corpus of
+ * {@link ArgStringTokenizerTest} and on a long argstring. Not run by the build : launch it with the test classpath,
+ * optionally with the number of iterations as argument.
+ */
+public class ArgStringTokenizerBenchmark {
+
+    private static final Pattern ARG_STRING_PATTERN = Pattern.compile("(\\S+)\\s\"?(.+)");
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        List<String> samples = new ArrayList<String>(ArgStringTokenizerTest.loadCorpus().keySet());
+        StringBuilder longArgString = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longArgString.append(" -option").append(i).append(" \"some value number ").append(i).append('"');
+        }
+
+        // correctness : how many samples of the corpus the previous parsing got wrong
+        int wrong = 0;
+        for (Map.Entry<String, Map<String, String>> sample : ArgStringTokenizerTest.loadCorpus().entrySet()) {
+            if (!sample.getValue().equals(parseWithRegex(sample.getKey()))) {
+                wrong++;
+            }
+        }
+        System.out.println("Corpus : " + samples.size() + " argstrings, " + wrong + " parsed wrongly by split + regex");
+
+        String[] corpus = samples.toArray(new String[samples.size()]);
+        String[] large = new String[] { longArgString.toString() };
+        run(corpus, iterations / 10);
+        runWithRegex(corpus, iterations / 10);
+        System.out.println("Corpus, split + regex           : " + runWithRegex(corpus, iterations) / iterations
+                           + " ns/argstring");
+        System.out.println("Corpus, ArgStringTokenizer      : " + run(corpus, iterations) / iterations + " ns/argstring");
+        int largeIterations = Math.max(1, iterations / 100);
+        System.out.println("200 options, split + regex      : " + runWithRegex(large, largeIterations)
+                           / largeIterations + " ns/argstring");
+        System.out.println("200 options, ArgStringTokenizer : " + run(large, largeIterations) / largeIterations
+                           + " ns/argstring");
+    }
+
+    private static long run(String[] samples, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ArgStringTokenizer.parse(samples[i % samples.length]);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runWithRegex(String[] samples, int iterations) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            parseWithRegex(samples[i % samples.length]);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Previous parsing, from RundeckCause
+     */
+    private static Map<String, String> parseWithRegex(String argString) {
+        Map<String, String> options = new LinkedHashMap<String, String>();
+        if (StringUtils.isNotEmpty(argString)) {
+            String[] args = argString.split("^-|\\s-");
+            for (int i = 1; i < args.length; i++) {
+                Matcher matcher = ARG_STRING_PATTERN.matcher(args[i]);
+                if (matcher.matches()) {
+                    String value = StringUtils.trim(matcher.group(2));
+                    if (value.endsWith("\"")) {
+                        value = value.substring(0, value.length() - 1);
+                    }
+                    options.put(matcher.group(1), value);
+                }
+            }
+        }
+        return options;
+    }
+
+}
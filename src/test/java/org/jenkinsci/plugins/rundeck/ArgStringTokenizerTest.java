@@ -0,0 +1,65 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link ArgStringTokenizer} on the corpus of argstrings "argstrings.txt"
+ */
+public class ArgStringTokenizerTest extends TestCase {
+
+    static final String CORPUS = "/argstrings.txt";
+
+    public void testCorpus() throws Exception {
+        Map<String, Map<String, String>> corpus = loadCorpus();
+        assertFalse(corpus.isEmpty());
+        for (Map.Entry<String, Map<String, String>> sample : corpus.entrySet()) {
+            assertEquals(sample.getKey(), sample.getValue(), ArgStringTokenizer.parse(sample.getKey()));
+        }
+    }
+
+    public void testNull() throws Exception {
+        assertTrue(ArgStringTokenizer.parse(null).isEmpty());
+    }
+
+    public void testOrder() throws Exception {
+        List<String> names = new ArrayList<String>(ArgStringTokenizer.parse("-c 1 -a 2 -b 3").keySet());
+        assertEquals("[c, a, b]", names.toString());
+    }
+
+    /**
+     * @return the expected options, by argstring
+     */
+    static Map<String, Map<String, String>> loadCorpus() throws Exception {
+        Map<String, Map<String, String>> corpus = new LinkedHashMap<String, Map<String, String>>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(ArgStringTokenizerTest.class.getResourceAsStream(CORPUS),
+                                                                         "UTF-8"));
+        try {
+            Map<String, String> expected = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith(">")) {
+                    expected = new LinkedHashMap<String, String>();
+                    corpus.put(line.length() > 2 ? line.substring(2) : "", expected);
+                } else if (line.length() == 0) {
+                    expected = null;
+                } else if (expected != null) {
+                    int separator = line.indexOf('=');
+                    expected.put(line.substring(0, separator), line.substring(separator + 1));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return corpus;
+    }
+
+}
@@ -0,0 +1,141 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.BuildListener;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.jenkinsci.plugins.rundeck.ArtifactIndex.Entry;
+import org.jvnet.hudson.test.TestBuilder;
+
+/**
+ * Test the {@link ArtifactIndex}
+ */
+public class ArtifactIndexTest extends AbstractArtifactTestCase {
+
+    public void testIndexIsMaintainedByBuilds() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(1);
+
+        // built from the history on first use
+        ArtifactIndex index = ArtifactIndex.get(project);
+        assertEquals(1, index.getSize());
+        assertTrue(new File(project.getRootDir(), "rundeck-artifacts.xml").exists());
+
+        // then updated when builds complete
+        assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+        List<Entry> artifacts = index.find("readme.txt", null, null);
+        assertEquals(2, artifacts.size());
+        assertEquals(2, artifacts.get(0).getBuildNumber());
+        assertEquals(1, artifacts.get(1).getBuildNumber());
+
+        artifacts = index.find(null, PatternCache.getRegex("app-.*\\.jar"), 1);
+        assertEquals(1, artifacts.size());
+        assertEquals("app-2.jar", artifacts.get(0).getFileName());
+        assertEquals(3, index.getArtifacts(2).size());
+
+        // and when builds are deleted
+        project.getBuildByNumber(2).delete();
+        artifacts = index.find("readme.txt", null, null);
+        assertEquals(1, artifacts.size());
+        assertEquals(1, artifacts.get(0).getBuildNumber());
+        assertNull(index.find(2, "app-2.jar", null));
+    }
+
+    public void testFindPageByPage() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(5);
+        ArtifactIndex index = ArtifactIndex.get(project);
+
+        List<Entry> page = index.find("readme.txt", null, null, 2);
+        assertEquals(2, page.size());
+        assertEquals(5, page.get(0).getBuildNumber());
+        assertEquals(4, page.get(1).getBuildNumber());
+
+        page = index.find(null, PatternCache.getRegex("app-.*\\.jar"), 4, 2);
+        assertEquals(2, page.size());
+        assertEquals("app-3.jar", page.get(0).getFileName());
+        assertEquals("app-2.jar", page.get(1).getFileName());
+
+        page = index.find("readme.txt", null, 2, null);
+        assertEquals(1, page.size());
+        assertEquals(1, page.get(0).getBuildNumber());
+        assertTrue(index.find("readme.txt", null, 1, null).isEmpty());
+    }
+
+    public void testDeletedArtifactsAreIgnored() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(1);
+        ArtifactIndex index = ArtifactIndex.get(project);
+        assertNotNull(index.find(1, "app-1.jar", null));
+
+        // as done by a log rotator keeping the builds but not their artifacts
+        project.getBuildByNumber(1).deleteArtifacts();
+        assertNull(index.find(1, "app-1.jar", null));
+        assertTrue(index.find(null, PatternCache.getRegex(".*"), null).isEmpty());
+        assertEquals(0, index.getSize());
+    }
+
+    public void testIndexIsForgottenWithItsProject() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(1);
+        ArtifactIndex index = ArtifactIndex.get(project);
+        assertSame(index, ArtifactIndex.getIfAvailable(project));
+
+        project.delete();
+        assertNotSame(index, ArtifactIndex.getInstance(project));
+    }
+
+    public void testBuildCompletedWhileLoading() throws Exception {
+        final FreeStyleProject project = createProjectWithArtifacts(1);
+        final CountDownLatch building = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread[] buildThread = new Thread[1];
+        project.getBuildersList().add(new TestBuilder() {
+
+            @Override
+            public boolean perform(AbstractBuild<?, ?> build, Launcher launcher, BuildListener listener)
+                    throws InterruptedException {
+                buildThread[0] = Thread.currentThread();
+                building.countDown();
+                return release.await(30, TimeUnit.SECONDS);
+            }
+        });
+        Future<FreeStyleBuild> build = project.scheduleBuild2(0);
+        assertTrue(building.await(30, TimeUnit.SECONDS));
+
+        ArtifactIndex index = ArtifactIndex.getInstance(project);
+        Thread loader = new Thread() {
+
+            @Override
+            public void run() {
+                ArtifactIndex.get(project);
+            }
+        };
+        synchronized (index) {
+            // the history is read without locking the index (skipping the running build), then the loader waits for us
+            loader.start();
+            waitUntilBlocked(loader, build);
+
+            // the build completes meanwhile, and waits for us to record it
+            release.countDown();
+            waitUntilBlocked(buildThread[0], build);
+        }
+        loader.join(30000);
+        assertBuildStatusSuccess(build.get());
+
+        assertEquals(2, index.getSize());
+        assertNotNull(index.find(2, "app-2.jar", null));
+    }
+
+    /**
+     * Wait until the given thread is blocked (on the index), or the build is done
+     */
+    private void waitUntilBlocked(Thread thread, Future<FreeStyleBuild> build) throws InterruptedException {
+        for (int i = 0; i < 3000 && thread.getState() != Thread.State.BLOCKED && !build.isDone(); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+}
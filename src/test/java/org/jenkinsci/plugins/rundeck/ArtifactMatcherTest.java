@@ -0,0 +1,90 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.regex.PatternSyntaxException;
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link ArtifactMatcher}s, and the {@link PatternCache}
+ */
+public class ArtifactMatcherTest extends TestCase {
+
+    public void testSimpleGlobs() throws Exception {
+        assertGlob("*.war", "app.war", "app-1.0.war", ".war");
+        assertNotGlob("*.war", "app.jar", "app.war.md5", "");
+        assertGlob("app-*", "app-1.0.war", "app-");
+        assertNotGlob("app-*", "my-app-1.0.war");
+        assertGlob("*-SNAPSHOT*", "app-1.0-SNAPSHOT.war", "-SNAPSHOT");
+        assertNotGlob("*-SNAPSHOT*", "app-1.0.war");
+        assertGlob("app.war", "app.war");
+        assertNotGlob("app.war", "app-war", "app.war2");
+        assertGlob("*", "", "app.war");
+    }
+
+    public void testWildcards() throws Exception {
+        assertGlob("app-?.?.war", "app-1.0.war");
+        assertNotGlob("app-?.?.war", "app-1.10.war", "app-1.war");
+        assertGlob("app-*.war", "app-1.0.war", "app-.war", "app-1.0.war.war");
+        assertNotGlob("app-*.war", "app-1.0.war.md5", "app.war");
+        assertGlob("*app*1*.war", "my-app-1.0.war", "app1.war");
+        assertNotGlob("*app*1*.war", "my-app-2.0.war");
+        assertGlob("a**b", "ab", "axxb");
+        assertGlob("*?", "a");
+        assertNotGlob("*?", "");
+        // no regex syntax
+        assertGlob("app[1].war", "app[1].war");
+        assertNotGlob("app[1].war", "app1.war");
+        assertNotGlob("app-.*", "app-1.0");
+    }
+
+    public void testNoCatastrophicBacktracking() throws Exception {
+        StringBuilder fileName = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            fileName.append('a');
+        }
+        long start = System.currentTimeMillis();
+        assertFalse(PatternCache.getGlob("*a*a*a*a*a*a*a*a*b").matches(fileName.toString()));
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    public void testRegex() throws Exception {
+        assertTrue(PatternCache.getRegex("app-.*\\.war").matches("app-1.0.war"));
+        assertFalse(PatternCache.getRegex("app-.*\\.war").matches("my-app-1.0.war"));
+        try {
+            PatternCache.getRegex("app-(.*");
+            fail("invalid regex");
+        } catch (PatternSyntaxException e) {
+            // expected
+        }
+    }
+
+    public void testCache() throws Exception {
+        ArtifactMatcher matcher = PatternCache.getRegex("cached-.*");
+        long hits = PatternCache.getHits();
+        assertSame(matcher, PatternCache.getRegex("cached-.*"));
+        assertEquals(hits + 1, PatternCache.getHits());
+
+        // a glob is not the regex with the same expression
+        assertNotSame(matcher, PatternCache.getGlob("cached-.*"));
+        assertSame(PatternCache.getGlob("cached-*"), PatternCache.getGlob("cached-*"));
+
+        // bounded : the least recently used matchers are dropped
+        for (int i = 0; i < PatternCache.MAX_SIZE; i++) {
+            PatternCache.getGlob("*." + i);
+        }
+        assertEquals(PatternCache.MAX_SIZE, PatternCache.getSize());
+        assertNotSame(matcher, PatternCache.getRegex("cached-.*"));
+    }
+
+    private void assertGlob(String glob, String... fileNames) {
+        for (String fileName : fileNames) {
+            assertTrue(glob + " should match " + fileName, PatternCache.getGlob(glob).matches(fileName));
+        }
+    }
+
+    private void assertNotGlob(String glob, String... fileNames) {
+        for (String fileName : fileNames) {
+            assertFalse(glob + " should not match " + fileName, PatternCache.getGlob(glob).matches(fileName));
+        }
+    }
+
+}
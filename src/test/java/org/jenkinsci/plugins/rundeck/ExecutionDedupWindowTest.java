@@ -0,0 +1,57 @@
+package org.jenkinsci.plugins.rundeck;
+
+import junit.framework.TestCase;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+
+/**
+ * Test the {@link ExecutionDedupWindow}
+ */
+public class ExecutionDedupWindowTest extends TestCase {
+
+    public void testDuplicatesAreSuppressed() throws Exception {
+        ExecutionDedupWindow window = new ExecutionDedupWindow();
+        assertTrue(window.markSeen(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED)));
+        assertFalse(window.markSeen(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED)));
+        assertTrue(window.markSeen(RundeckTestUtils.createExecution(1L, ExecutionStatus.FAILED)));
+        assertTrue(window.markSeen(RundeckTestUtils.createExecution(2L, ExecutionStatus.SUCCEEDED)));
+        assertEquals(1, window.getSuppressed());
+    }
+
+    public void testForget() throws Exception {
+        ExecutionDedupWindow window = new ExecutionDedupWindow();
+        assertTrue(window.markSeen(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED)));
+        window.forget(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED));
+        assertTrue(window.markSeen(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED)));
+    }
+
+    public void testBounds() throws Exception {
+        MockClock clock = new MockClock();
+        ExecutionDedupWindow window = new ExecutionDedupWindow(10, 2, clock);
+        window.markSeen(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED));
+        window.markSeen(RundeckTestUtils.createExecution(2L, ExecutionStatus.SUCCEEDED));
+        window.markSeen(RundeckTestUtils.createExecution(3L, ExecutionStatus.SUCCEEDED));
+        assertEquals(2, window.getSize());
+        assertTrue(window.markSeen(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED)));
+
+        // still in the window
+        clock.now += 10;
+        assertFalse(window.markSeen(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED)));
+
+        clock.now += 1;
+        assertTrue(window.markSeen(RundeckTestUtils.createExecution(3L, ExecutionStatus.SUCCEEDED)));
+        assertEquals(1, window.getSize());
+    }
+
+    /**
+     * {@link ExecutionDedupWindow.Clock} which only moves when told to
+     */
+    private static class MockClock implements ExecutionDedupWindow.Clock {
+
+        private long now = 1000;
+
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.jenkinsci.plugins.rundeck.ArtifactIndex.Entry;
+
+/**
+ * Test the {@link HistoryScanner}
+ */
+public class HistoryScannerTest extends AbstractArtifactTestCase {
+
+    public void testScanInBuildOrder() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(40);
+        assertNull(ArtifactIndex.getIfAvailable(project));
+        HistoryScanner scanner = new HistoryScanner(4);
+
+        // more builds than a batch : all of them, most recent first
+        HistoryScanner.Scan scan = scanner.scan(project, null, PatternCache.getGlob("app-*.jar"), null, 60000);
+        List<Integer> numbers = getNumbers(scan, null);
+        assertEquals(40, numbers.size());
+        for (int i = 0; i < numbers.size(); i++) {
+            assertEquals(40 - i, numbers.get(i).intValue());
+        }
+        assertFalse(scan.isPartial());
+        assertEquals(Integer.valueOf(1), scan.getLastChecked());
+
+        // only the builds of the artifact, older than the cursor, as many as read
+        scan = scanner.scan(project, "even.txt", null, 30, 60000);
+        assertEquals(Arrays.asList(28, 26, 24), getNumbers(scan, 3));
+        assertTrue(scan.getLastChecked() <= 24);
+        assertTrue(scan.getLastChecked() > 24 - HistoryScanner.BATCH_SIZE);
+
+        // the scan does not build the index
+        assertNull(ArtifactIndex.getIfAvailable(project));
+    }
+
+    public void testTimeBudgetSpent() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(3);
+
+        // the older builds are never checked in time
+        final CountDownLatch never = new CountDownLatch(1);
+        HistoryScanner scanner = new HistoryScanner(1) {
+
+            @Override
+            Entry check(Run<?, ?> build, String artifactName, ArtifactMatcher artifactMatcher) {
+                if (build.getNumber() < 3) {
+                    try {
+                        never.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }
+                return super.check(build, artifactName, artifactMatcher);
+            }
+        };
+        HistoryScanner.Scan scan = scanner.scan(project, "readme.txt", null, null, 1000);
+
+        assertEquals(Arrays.asList(3), getNumbers(scan, null));
+        assertTrue(scan.isPartial());
+        assertEquals(Integer.valueOf(3), scan.getLastChecked());
+    }
+
+    public void testIndexInBackground() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(3);
+        assertNull(ArtifactIndex.getIfAvailable(project));
+        new HistoryScanner().index(project);
+        for (int i = 0; i < 100 && ArtifactIndex.getIfAvailable(project) == null; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(3, ArtifactIndex.getIfAvailable(project).getSize());
+    }
+
+    private List<Integer> getNumbers(HistoryScanner.Scan scan, Integer limit) {
+        List<Integer> numbers = new ArrayList<Integer>();
+        while ((limit == null || numbers.size() < limit) && scan.hasNext()) {
+            numbers.add(scan.next().getBuildNumber());
+        }
+        return numbers;
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link JobIdentifierTrie}
+ */
+public class JobIdentifierTrieTest extends TestCase {
+
+    public void testExactIdentifiers() throws Exception {
+        JobIdentifierTrie<String> trie = createTrie("2027ce89-7924-4ecf-a963-30090ada834f", "Project:Group/Job");
+
+        assertTrue(trie.matches(RundeckTestUtils.createJob("2027CE89-7924-4ECF-A963-30090ADA834F",
+                                                           "other",
+                                                           null,
+                                                           "other")));
+        assertTrue(trie.matches(RundeckTestUtils.createJob("1", "project", "group", "job")));
+        assertFalse(trie.matches(RundeckTestUtils.createJob("1", "project", "group", "job2")));
+        assertFalse(trie.matches(RundeckTestUtils.createJob("1", "project", "group", "jo")));
+        assertFalse(trie.matches(RundeckTestUtils.createJob("1", "project", null, "job")));
+        assertFalse(trie.matches(null));
+    }
+
+    public void testJobWithoutGroup() throws Exception {
+        JobIdentifierTrie<String> trie = createTrie("project:job");
+        assertTrue(trie.matches(RundeckTestUtils.createJob("1", "project", null, "job")));
+        assertTrue(trie.matches(RundeckTestUtils.createJob("1", "project", "", "job")));
+        assertFalse(trie.matches(RundeckTestUtils.createJob("1", "project", "group", "job")));
+    }
+
+    public void testWildcards() throws Exception {
+        JobIdentifierTrie<String> trie = createTrie("project:deploy/*");
+        assertTrue(trie.matches(RundeckTestUtils.createJob("1", "project", "deploy", "job")));
+        assertTrue(trie.matches(RundeckTestUtils.createJob("1", "PROJECT", "deploy/prod", "job")));
+        assertFalse(trie.matches(RundeckTestUtils.createJob("1", "project", "deployment", "job")));
+        assertFalse(trie.matches(RundeckTestUtils.createJob("1", "project", null, "deploy")));
+
+        trie = createTrie("project:*");
+        assertTrue(trie.matches(RundeckTestUtils.createJob("1", "project", null, "job")));
+        assertTrue(trie.matches(RundeckTestUtils.createJob("1", "project", "group", "job")));
+        assertFalse(trie.matches(RundeckTestUtils.createJob("1", "project2", "group", "job")));
+    }
+
+    public void testCollect() throws Exception {
+        JobIdentifierTrie<String> trie = createTrie("1", "project:group/job", "project:*", "other:*");
+        List<String> result = new ArrayList<String>();
+        trie.collect(RundeckTestUtils.createJob("1", "project", "group", "job"), result);
+        assertEquals(3, result.size());
+        assertTrue(result.contains("1"));
+        assertTrue(result.contains("project:group/job"));
+        assertTrue(result.contains("project:*"));
+    }
+
+    public void testLocaleIndependent() throws Exception {
+        Locale defaultLocale = Locale.getDefault();
+        // "I".toLowerCase() is a dotless i in Turkish
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            JobIdentifierTrie<String> trie = createTrie("INFRA:IMPORT/*");
+            assertTrue(trie.matches(RundeckTestUtils.createJob("1", "infra", "import", "job")));
+            assertTrue(trie.matches(RundeckTestUtils.createJob("1", "INFRA", "IMPORT", "job")));
+
+            // "\u0130".toLowerCase() is 2 characters long (an i followed by a combining dot)
+            trie = createTrie("infra:\u0130mport/job");
+            assertTrue(trie.matches(RundeckTestUtils.createJob("1", "infra", "\u0130mport", "job")));
+            assertTrue(trie.matches(RundeckTestUtils.createJob("1", "infra", "import", "job")));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    private JobIdentifierTrie<String> createTrie(String... identifiers) {
+        JobIdentifierTrie<String> trie = new JobIdentifierTrie<String>();
+        for (String identifier : identifiers) {
+            trie.put(identifier, identifier);
+        }
+        return trie;
+    }
+
+}
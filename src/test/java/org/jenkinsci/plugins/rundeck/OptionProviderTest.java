@@ -0,0 +1,103 @@
+package org.jenkinsci.plugins.rundeck;
+
+import com.gargoylesoftware.htmlunit.Page;
+import com.gargoylesoftware.htmlunit.WebResponse;
+import hudson.model.FreeStyleProject;
+import hudson.model.TaskListener;
+import java.net.URL;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Test the validation of the responses of the {@link OptionProvider} (ETag, Last-Modified)
+ */
+public class OptionProviderTest extends AbstractArtifactTestCase {
+
+    public void testIfNoneMatch() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(2);
+        ArtifactIndex.get(project);
+        String query = "project=" + project.getFullName() + "&artifact=readme.txt";
+
+        WebResponse response = getBuilds(query, null, null);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatusCode());
+        String eTag = response.getResponseHeaderValue("ETag");
+        assertNotNull(eTag);
+
+        // not modified
+        response = getBuilds(query, "If-None-Match", eTag);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatusCode());
+        assertEquals(eTag, response.getResponseHeaderValue("ETag"));
+        response = getBuilds(query, "If-None-Match", "\"other\", " + eTag);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatusCode());
+        response = getBuilds(query, "If-None-Match", "\"other\"");
+        assertEquals(HttpServletResponse.SC_OK, response.getStatusCode());
+
+        // a new build changes the ETag
+        assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+        response = getBuilds(query, "If-None-Match", eTag);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatusCode());
+        assertFalse(eTag.equals(response.getResponseHeaderValue("ETag")));
+        assertTrue(response.getContentAsString().contains("#3 - "));
+    }
+
+    public void testIfModifiedSince() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(1);
+        ArtifactIndex.get(project);
+        String query = "project=" + project.getFullName() + "&artifact=readme.txt";
+
+        WebResponse response = getBuilds(query, null, null);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatusCode());
+        String lastModified = response.getResponseHeaderValue("Last-Modified");
+        assertNotNull(lastModified);
+
+        response = getBuilds(query, "If-Modified-Since", lastModified);
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatusCode());
+        response = getBuilds(query, "If-Modified-Since", "Thu, 01 Jan 1970 00:00:00 GMT");
+        assertEquals(HttpServletResponse.SC_OK, response.getStatusCode());
+        response = getBuilds(query, "If-Modified-Since", "not a date");
+        assertEquals(HttpServletResponse.SC_OK, response.getStatusCode());
+    }
+
+    public void testDeletedArtifactsChangeTheETag() throws Exception {
+        FreeStyleProject project = createProjectWithArtifacts(2);
+        ArtifactIndex.get(project);
+        String query = "project=" + project.getFullName() + "&artifact=readme.txt";
+
+        // cached, and validated by its ETag
+        WebResponse response = getBuilds(query, null, null);
+        assertTrue(response.getContentAsString().contains("#1 - "));
+        String eTag = response.getResponseHeaderValue("ETag");
+
+        // as done by a log rotator keeping the builds but not their artifacts
+        project.getBuildByNumber(1).deleteArtifacts();
+
+        // detected by the periodic sweep
+        new ArtifactIndexSweeper().execute(TaskListener.NULL);
+
+        response = getBuilds(query, "If-None-Match", eTag);
+        assertEquals(HttpServletResponse.SC_OK, response.getStatusCode());
+        assertFalse(eTag.equals(response.getResponseHeaderValue("ETag")));
+        assertTrue(response.getContentAsString().contains("#2 - "));
+        assertFalse(response.getContentAsString().contains("#1 - "));
+
+        // nor served from the cache
+        response = getBuilds(query, null, null);
+        assertFalse(response.getContentAsString().contains("#1 - "));
+    }
+
+    /**
+     * @param query of the "build" provider
+     * @param header name of a request header - may be null
+     * @param value of the request header
+     * @return the response of the "build" provider
+     */
+    private WebResponse getBuilds(String query, String header, String value) throws Exception {
+        WebClient webClient = createWebClient();
+        webClient.setThrowExceptionOnFailingStatusCode(false);
+        if (header != null) {
+            webClient.addRequestHeader(header, value);
+        }
+        Page page = webClient.getPage(new URL(getURL(), "plugin/rundeck/options/build?" + query));
+        return page.getWebResponse();
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.jenkinsci.plugins.rundeck;
+
+import junit.framework.TestCase;
+import org.jenkinsci.plugins.rundeck.OptionResponseCache.CachedResponse;
+
+/**
+ * Test the {@link OptionResponseCache}
+ */
+public class OptionResponseCacheTest extends TestCase {
+
+    public void testResponsesAreServedForTheSameETag() throws Exception {
+        OptionResponseCache cache = new OptionResponseCache();
+        cache.put("build?project=p", new CachedResponse("p", "\"1c-0\"", 0, "[]"));
+        assertEquals("[]", cache.get("build?project=p", "\"1c-0\"").getBody());
+        assertNull(cache.get("build?project=p", "\"2b-0\""));
+        assertNull(cache.get("build?project=other", "\"1c-0\""));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    public void testLeastRecentlyUsedResponsesAreDropped() throws Exception {
+        OptionResponseCache cache = new OptionResponseCache(2);
+        cache.put("a", new CachedResponse("p", "e", 0, "a"));
+        cache.put("b", new CachedResponse("p", "e", 0, "b"));
+        assertNotNull(cache.get("a", "e"));
+        cache.put("c", new CachedResponse("p", "e", 0, "c"));
+        assertEquals(2, cache.getSize());
+        assertNotNull(cache.get("a", "e"));
+        assertNull(cache.get("b", "e"));
+    }
+
+    public void testInvalidate() throws Exception {
+        OptionResponseCache cache = new OptionResponseCache();
+        cache.put("a", new CachedResponse("p", "e", 0, "a"));
+        cache.put("b", new CachedResponse("other", "e", 0, "b"));
+        cache.invalidate("p");
+        assertNull(cache.get("a", "e"));
+        assertNotNull(cache.get("b", "e"));
+    }
+
+}
@@ -0,0 +1,52 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.StringWriter;
+import junit.framework.TestCase;
+import net.sf.json.JSONArray;
+import org.jenkinsci.plugins.rundeck.OptionProvider.Option;
+import org.jenkinsci.plugins.rundeck.OptionProvider.OptionWriter;
+
+/**
+ * Test the {@link OptionWriter}
+ */
+public class OptionWriterTest extends TestCase {
+
+    public void testEmpty() throws Exception {
+        StringWriter out = new StringWriter();
+        assertEquals("[]", new OptionWriter(out, 1024).close());
+        assertEquals("[]", out.toString());
+    }
+
+    public void testSameOutputAsJsonArray() throws Exception {
+        Option[] options = new Option[] {
+                new Option("#2 - 2011-01-01T10:00:00Z", "http://jenkins/job/app/2/artifact/app.war"),
+                new Option("quote \" and backslash \\", "tab\tnew line\n</script>"),
+                new Option("unicode \u00e9\u0001", null) };
+
+        StringWriter out = new StringWriter();
+        OptionWriter writer = new OptionWriter(out, 1024);
+        for (Option option : options) {
+            writer.write(option);
+        }
+        String body = writer.close();
+
+        JSONArray array = new JSONArray();
+        for (Option option : options) {
+            array.add(option);
+        }
+        assertEquals(array.toString(), out.toString());
+        assertEquals(out.toString(), body);
+        assertEquals("quote \" and backslash \\", JSONArray.fromObject(body).getJSONObject(1).getString("name"));
+    }
+
+    public void testLargeOutputIsNotKept() throws Exception {
+        StringWriter out = new StringWriter();
+        OptionWriter writer = new OptionWriter(out, 100);
+        for (int i = 0; i < 10; i++) {
+            writer.write(new Option("build #" + i, "http://jenkins/job/app/" + i + "/artifact/app.war"));
+        }
+        assertNull(writer.close());
+        assertEquals(10, JSONArray.fromObject(out.toString()).size());
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.jenkinsci.plugins.rundeck;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link PollSchedule}
+ */
+public class PollScheduleTest extends TestCase {
+
+    public void testPollsCloserAsExpectedEndApproaches() {
+        PollSchedule schedule = new PollSchedule(0, 600000L, 1000, 300000);
+
+        long first = schedule.nextDelay(0);
+        assertTrue(first >= 240000 && first <= 300000);
+
+        long later = schedule.nextDelay(560000);
+        assertTrue(later >= 16000 && later <= 24000);
+
+        assertEquals(1000, schedule.nextDelay(599000));
+    }
+
+    public void testBacksOffWhenDurationIsUnknown() {
+        PollSchedule schedule = new PollSchedule(0, null, 1000, 10000);
+
+        long previous = 0;
+        for (int i = 0; i < 3; i++) {
+            long delay = schedule.nextDelay(0);
+            assertTrue(delay > previous);
+            previous = delay;
+        }
+        for (int i = 0; i < 10; i++) {
+            assertTrue(schedule.nextDelay(0) <= 10000);
+        }
+        assertTrue(schedule.nextDelay(0) >= 8000);
+    }
+
+    public void testBacksOffOnceExpectedDurationIsExceeded() {
+        PollSchedule schedule = new PollSchedule(0, 5000L, 2000, 60000);
+
+        long delay = schedule.nextDelay(10000);
+        assertTrue(delay >= 2000 && delay <= 2400);
+        delay = schedule.nextDelay(12000);
+        assertTrue(delay >= 3200 && delay <= 4800);
+    }
+
+    public void testRetriesFailedPollsFromTheMinimumInterval() {
+        PollSchedule schedule = new PollSchedule(0, 600000L, 1000, 300000);
+
+        long delay = schedule.nextRetryDelay();
+        assertTrue(delay >= 1000 && delay <= 1200);
+        delay = schedule.nextRetryDelay();
+        assertTrue(delay >= 1600 && delay <= 2400);
+        assertEquals(2, schedule.getFailedPolls());
+
+        // reset by the next successful poll
+        schedule.nextDelay(0);
+        assertEquals(0, schedule.getFailedPolls());
+    }
+}
@@ -1,6 +1,10 @@
 package org.jenkinsci.plugins.rundeck;
 
 import hudson.EnvVars;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Run;
+import hudson.model.TaskListener;
 import org.junit.Assert;
 import org.jvnet.hudson.test.HudsonTestCase;
 import org.rundeck.api.domain.RundeckExecution;
@@ -34,4 +38,87 @@ public class RundeckCauseTest extends HudsonTestCase {
         Assert.assertEquals("value-value-", envVars.expand("$RDECK_EXEC_ARG_optionWithTrailingHyphen"));
 
     }
+
+    public void testCompactSerialization() {
+        RundeckExecution execution = new RundeckExecution();
+        execution.setId(1L);
+        execution.setUrl("http://localhost:4440/execution/follow/1");
+        execution.setStatus(RundeckExecution.ExecutionStatus.SUCCEEDED);
+        execution.setDescription("a long description");
+        execution.setArgstring("-option value");
+
+        String cause = Run.XSTREAM.toXML(new RundeckCause(execution));
+        Assert.assertEquals("Started by <a href=\"http://localhost:4440/execution/follow/1\">Rundeck Execution #1</a>",
+                            ((RundeckCause) Run.XSTREAM.fromXML(cause)).getShortDescription());
+
+        String action = Run.XSTREAM.toXML(new RundeckCause.RundeckExecutionEnvironmentContributingAction(execution));
+        Assert.assertFalse(action.contains("<execution>"));
+        EnvVars envVars = new EnvVars();
+        Object resolved = Run.XSTREAM.fromXML(action);
+        ((RundeckCause.RundeckExecutionEnvironmentContributingAction) resolved).buildEnvVars(null, envVars);
+        Assert.assertEquals("value", envVars.get("RDECK_EXEC_ARG_option"));
+        Assert.assertEquals("a long description", envVars.get("RDECK_EXEC_DESCRIPTION"));
+    }
+
+    public void testEnvironmentOfAQueuedBuildSurvivesARestart() throws Exception {
+        RundeckExecution execution = new RundeckExecution();
+        execution.setId(1L);
+        execution.setUrl("http://localhost:4440/execution/follow/1");
+        execution.setStatus(RundeckExecution.ExecutionStatus.SUCCEEDED);
+        execution.setDescription("a long description");
+        execution.setArgstring("-option value");
+
+        // as persisted with the queue
+        RundeckCause cause = (RundeckCause) Run.XSTREAM.fromXML(Run.XSTREAM.toXML(new RundeckCause(execution)));
+
+        FreeStyleProject project = createFreeStyleProject();
+        FreeStyleBuild build = assertBuildStatusSuccess(project.scheduleBuild2(0, cause));
+        EnvVars envVars = build.getEnvironment(TaskListener.NULL);
+        Assert.assertEquals("value", envVars.get("RDECK_EXEC_ARG_option"));
+        Assert.assertEquals("1", envVars.get("RDECK_EXEC_ID"));
+
+        // only stored once with the build, by the action
+        Assert.assertFalse(Run.XSTREAM.toXML(build.getCause(RundeckCause.class)).contains("a long description"));
+        RundeckCause.RundeckExecutionEnvironmentContributingAction action;
+        action = build.getAction(RundeckCause.RundeckExecutionEnvironmentContributingAction.class);
+        Assert.assertTrue(Run.XSTREAM.toXML(action).contains("a long description"));
+    }
+
+    public void testEnvironmentOfALegacyQueuedBuild() throws Exception {
+        // as persisted with the queue by previous versions
+        String execution = "<execution><id>1</id><url>http://localhost:4440/execution/follow/1</url>"
+                           + "<status>SUCCEEDED</status><argstring>-option value</argstring></execution>";
+        RundeckCause cause = (RundeckCause) Run.XSTREAM.fromXML("<org.jenkinsci.plugins.rundeck.RundeckCause>"
+                                                                + execution
+                                                                + "</org.jenkinsci.plugins.rundeck.RundeckCause>");
+
+        FreeStyleProject project = createFreeStyleProject();
+        FreeStyleBuild build = assertBuildStatusSuccess(project.scheduleBuild2(0, cause));
+        EnvVars envVars = build.getEnvironment(TaskListener.NULL);
+        Assert.assertEquals("value", envVars.get("RDECK_EXEC_ARG_option"));
+        Assert.assertEquals("1", envVars.get("RDECK_EXEC_ID"));
+    }
+
+    public void testLegacyBuildRecords() {
+        String execution = "<execution><id>1</id><url>http://localhost:4440/execution/follow/1</url>"
+                           + "<status>SUCCEEDED</status><argstring>-option value</argstring></execution>";
+
+        RundeckCause cause = (RundeckCause) Run.XSTREAM.fromXML("<org.jenkinsci.plugins.rundeck.RundeckCause>"
+                                                                + execution
+                                                                + "</org.jenkinsci.plugins.rundeck.RundeckCause>");
+        Assert.assertEquals("Started by <a href=\"http://localhost:4440/execution/follow/1\">Rundeck Execution #1</a>",
+                            cause.getShortDescription());
+        Assert.assertFalse(Run.XSTREAM.toXML(cause).contains("<execution>"));
+
+        String tag = "org.jenkinsci.plugins.rundeck.RundeckCause_-RundeckExecutionEnvironmentContributingAction";
+        RundeckCause.RundeckExecutionEnvironmentContributingAction action;
+        action = (RundeckCause.RundeckExecutionEnvironmentContributingAction) Run.XSTREAM.fromXML("<" + tag + ">"
+                                                                                                  + execution + "</"
+                                                                                                  + tag + ">");
+        EnvVars envVars = new EnvVars();
+        action.buildEnvVars(null, envVars);
+        Assert.assertEquals("value", envVars.get("RDECK_EXEC_ARG_option"));
+        Assert.assertEquals("1", envVars.get("RDECK_EXEC_ID"));
+        Assert.assertEquals("Started by Rundeck Execution #1", action.getDisplayName());
+    }
 }
@@ -0,0 +1,63 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import junit.framework.TestCase;
+import org.rundeck.api.domain.RundeckExecution;
+
+/**
+ * Test the {@link RundeckExecutionFeed}
+ */
+public class RundeckExecutionFeedTest extends TestCase {
+
+    public void testOnlyNewExecutionsAreReturned() throws Exception {
+        RundeckExecutionFeed feed = new RundeckExecutionFeed(null);
+        feed.start("project", 1500);
+
+        // Rundeck returns the most recent executions first
+        List<RundeckExecution> executions = feed.update("project", Arrays.asList(createExecution(3L, 3000),
+                                                                                 createExecution(2L, 2000),
+                                                                                 createExecution(1L, 1000),
+                                                                                 createExecution(4L, null)));
+        assertEquals(2, executions.size());
+        assertEquals(Long.valueOf(2L), executions.get(0).getId());
+        assertEquals(Long.valueOf(3L), executions.get(1).getId());
+        assertEquals(Long.valueOf(3000), feed.getHighWaterMark("project"));
+
+        // nothing new : the mark doesn't move
+        assertTrue(feed.update("project", Arrays.asList(createExecution(3L, 3000))).isEmpty());
+        assertEquals(Long.valueOf(3000), feed.getHighWaterMark("project"));
+    }
+
+    public void testExecutionsAtTheMarkAreNotReturnedTwice() throws Exception {
+        RundeckExecutionFeed feed = new RundeckExecutionFeed(null);
+        feed.start("project", 1000);
+        assertEquals(1, feed.update("project", Arrays.asList(createExecution(1L, 2000))).size());
+
+        // an execution which ended at the same time is only returned by the next poll
+        List<RundeckExecution> executions = feed.update("project", Arrays.asList(createExecution(1L, 2000),
+                                                                                 createExecution(2L, 2000)));
+        assertEquals(1, executions.size());
+        assertEquals(Long.valueOf(2L), executions.get(0).getId());
+        assertTrue(feed.update("project", Arrays.asList(createExecution(1L, 2000), createExecution(2L, 2000)))
+                       .isEmpty());
+    }
+
+    public void testProjectsAreIndependent() throws Exception {
+        RundeckExecutionFeed feed = new RundeckExecutionFeed(null);
+        assertNull(feed.getHighWaterMark("project"));
+        feed.start("project", 1000);
+        feed.start("other", 5000);
+        assertEquals(1, feed.update("project", Arrays.asList(createExecution(1L, 2000))).size());
+        assertEquals(Long.valueOf(5000), feed.getHighWaterMark("other"));
+    }
+
+    private RundeckExecution createExecution(Long id, Integer endedAt) {
+        RundeckExecution execution = new RundeckExecution();
+        execution.setId(id);
+        execution.setEndedAt(endedAt != null ? new Date(endedAt) : null);
+        return execution;
+    }
+
+}
@@ -0,0 +1,242 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import org.jenkinsci.plugins.rundeck.RundeckExecutionPoller.ExecutionListener;
+import org.jenkinsci.plugins.rundeck.RundeckExecutionPoller.TrackedExecution;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.domain.RundeckJob;
+
+/**
+ * Test the {@link RundeckExecutionPoller}
+ */
+public class RundeckExecutionPollerTest extends TestCase {
+
+    private RundeckExecutionPoller poller;
+
+    private MockRundeckClient rundeck;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        poller = new RundeckExecutionPoller(new RundeckJobCatalog(), new RundeckHealthTracker());
+        poller.setPollIntervals(10, 10);
+        rundeck = new MockRundeckClient();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        poller.shutdown();
+        super.tearDown();
+    }
+
+    public void testFinishedExecutionsAreCompleted() throws Exception {
+        TrackedExecution tracked = poller.track(rundeck, "job", rundeck.start(1L));
+        assertFalse(tracked.await(100));
+        assertEquals(1, poller.getTrackedExecutionCount());
+
+        rundeck.finish(1L, ExecutionStatus.SUCCEEDED);
+        assertTrue(tracked.await(5000));
+        assertEquals(ExecutionStatus.SUCCEEDED, tracked.await().getStatus());
+        assertEquals(0, poller.getTrackedExecutionCount());
+    }
+
+    public void testAlreadyFinishedExecutionsAreNotTracked() throws Exception {
+        RundeckExecution execution = rundeck.start(1L);
+        execution.setStatus(ExecutionStatus.FAILED);
+        TrackedExecution tracked = poller.track(rundeck, "job", execution);
+        assertTrue(tracked.await(0));
+        assertEquals(0, poller.getTrackedExecutionCount());
+    }
+
+    public void testNotificationsAreCheckedWithRundeck() throws Exception {
+        poller.setPollIntervals(60000, 60000);
+        TrackedExecution tracked = poller.track(rundeck, "job", rundeck.start(1L));
+
+        // forged notification : the execution is still running
+        assertFalse(poller.onNotification(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED)));
+        assertFalse(tracked.await(0));
+
+        // completed with the status returned by Rundeck, not the one of the notification
+        rundeck.finish(1L, ExecutionStatus.FAILED);
+        assertTrue(poller.onNotification(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED)));
+        assertTrue(tracked.await(0));
+        assertEquals(ExecutionStatus.FAILED, tracked.await().getStatus());
+        assertEquals(0, poller.getTrackedExecutionCount());
+
+        // only once
+        assertFalse(poller.onNotification(RundeckTestUtils.createExecution(1L, ExecutionStatus.FAILED)));
+    }
+
+    public void testIgnoredNotifications() throws Exception {
+        poller.setPollIntervals(60000, 60000);
+        TrackedExecution tracked = poller.track(rundeck, "job", rundeck.start(1L));
+        rundeck.finish(1L, ExecutionStatus.SUCCEEDED);
+
+        assertFalse(poller.onNotification(null));
+        assertFalse(poller.onNotification(RundeckTestUtils.createExecution(2L, ExecutionStatus.SUCCEEDED)));
+        assertFalse(poller.onNotification(RundeckTestUtils.createExecution(1L, ExecutionStatus.RUNNING)));
+
+        // Rundeck not available : left to the poller
+        rundeck.available = false;
+        assertFalse(poller.onNotification(RundeckTestUtils.createExecution(1L, ExecutionStatus.SUCCEEDED)));
+        assertFalse(tracked.await(0));
+        assertEquals(1, poller.getTrackedExecutionCount());
+    }
+
+    public void testErrorsDoNotStopThePoller() throws Exception {
+        TrackedExecution first = poller.track(rundeck, "job", rundeck.start(1L));
+        first.addListener(new ExecutionListener() {
+
+            public void onFinished(RundeckExecution execution) {
+                throw new AssertionError("failing listener");
+            }
+
+            public void onError(RundeckApiException error) {
+                throw new AssertionError("failing listener");
+            }
+        });
+        rundeck.finish(1L, ExecutionStatus.FAILED);
+        assertTrue(first.await(5000));
+
+        // the following executions are still polled
+        TrackedExecution second = poller.track(rundeck, "job", rundeck.start(2L));
+        rundeck.finish(2L, ExecutionStatus.SUCCEEDED);
+        assertTrue(second.await(5000));
+    }
+
+    public void testErrorsAreRetried() throws Exception {
+        TrackedExecution tracked = poller.track(rundeck, "job", rundeck.start(1L));
+        rundeck.available = false;
+        rundeck.finish(1L, ExecutionStatus.SUCCEEDED);
+        assertFalse(tracked.await(1200));
+        assertEquals(1, poller.getTrackedExecutionCount());
+
+        rundeck.available = true;
+        assertTrue(tracked.await(5000));
+        assertEquals(ExecutionStatus.SUCCEEDED, tracked.await().getStatus());
+    }
+
+    public void testFailedAfterConsecutiveErrors() throws Exception {
+        TrackedExecution tracked = poller.track(rundeck, "job", rundeck.start(1L));
+        rundeck.available = false;
+        assertTrue(tracked.await(10000));
+        try {
+            tracked.await();
+            fail("the execution should have failed");
+        } catch (RundeckApiException e) {
+            assertEquals("Rundeck is not available", e.getMessage());
+        }
+        assertEquals(0, poller.getTrackedExecutionCount());
+        assertTrue(rundeck.calls.get() >= RundeckExecutionPoller.MAX_CONSECUTIVE_ERRORS);
+    }
+
+    public void testNotPolledWhileCircuitIsOpen() throws Exception {
+        poller.shutdown();
+        poller = new RundeckExecutionPoller(new RundeckJobCatalog(), new RundeckHealthTracker(1, 60000));
+        poller.setPollIntervals(10, 10);
+        rundeck.reachable = false;
+        TrackedExecution tracked = poller.track(rundeck, "job", rundeck.start(1L));
+        assertFalse(tracked.await(1200));
+        assertEquals(1, rundeck.calls.get());
+
+        // neither polled nor failed until the circuit lets a probe through
+        assertFalse(tracked.await(1500));
+        assertEquals(1, rundeck.calls.get());
+        assertEquals(1, poller.getTrackedExecutionCount());
+    }
+
+    public void testShutdown() throws Exception {
+        TrackedExecution first = poller.track(rundeck, "job", rundeck.start(1L));
+        poller.shutdown();
+        rundeck.finish(1L, ExecutionStatus.SUCCEEDED);
+        assertFalse(first.await(500));
+
+        // polling starts again with the next tracked execution
+        TrackedExecution second = poller.track(rundeck, "job", rundeck.start(2L));
+        rundeck.finish(2L, ExecutionStatus.SUCCEEDED);
+        assertTrue(first.await(5000));
+        assertTrue(second.await(5000));
+    }
+
+    /**
+     * Mock {@link RundeckClient} holding the status of the executions of a single project. When not available, calls fail
+     * with an error returned by Rundeck - when not reachable, with an I/O error.
+     */
+    static class MockRundeckClient extends RundeckClient {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<Long, ExecutionStatus> statuses = new ConcurrentHashMap<Long, ExecutionStatus>();
+
+        volatile boolean available = true;
+
+        volatile boolean reachable = true;
+
+        final AtomicInteger calls = new AtomicInteger();
+
+        MockRundeckClient() {
+            super("http://localhost:4440", "admin", "admin");
+        }
+
+        RundeckExecution start(Long id) {
+            statuses.put(id, ExecutionStatus.RUNNING);
+            return createExecution(id);
+        }
+
+        void finish(Long id, ExecutionStatus status) {
+            statuses.put(id, status);
+        }
+
+        @Override
+        public RundeckExecution getExecution(Long executionId) {
+            checkAvailable();
+            return createExecution(executionId);
+        }
+
+        @Override
+        public List<RundeckExecution> getRunningExecutions(String project) {
+            checkAvailable();
+            List<RundeckExecution> running = new ArrayList<RundeckExecution>();
+            for (Map.Entry<Long, ExecutionStatus> status : statuses.entrySet()) {
+                if (ExecutionStatus.RUNNING.equals(status.getValue())) {
+                    running.add(createExecution(status.getKey()));
+                }
+            }
+            return running;
+        }
+
+        private void checkAvailable() {
+            calls.incrementAndGet();
+            if (!reachable) {
+                throw new RundeckApiException("Rundeck is not reachable", new IOException("Connection refused"));
+            }
+            if (!available) {
+                throw new RundeckApiException("Rundeck is not available");
+            }
+        }
+
+        private RundeckExecution createExecution(Long id) {
+            RundeckJob job = new RundeckJob();
+            job.setId("job");
+            job.setProject("project");
+            job.setName("name");
+            RundeckExecution execution = new RundeckExecution();
+            execution.setId(id);
+            execution.setJob(job);
+            execution.setStatus(statuses.get(id));
+            execution.setStartedAt(new Date());
+            return execution;
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.IOException;
+import junit.framework.TestCase;
+import org.jenkinsci.plugins.rundeck.RundeckHealthTracker.State;
+import org.rundeck.api.RundeckApiException;
+
+/**
+ * Test the {@link RundeckHealthTracker}
+ */
+public class RundeckHealthTrackerTest extends TestCase {
+
+    public void testCircuitOpensAfterConsecutiveFailures() throws Exception {
+        RundeckHealthTracker health = new RundeckHealthTracker(3, 60000);
+        health.recordFailure(connectionFailure());
+        health.recordFailure(connectionFailure());
+        assertEquals(State.CLOSED, health.getState());
+        assertTrue(health.allowRequest());
+
+        health.recordFailure(connectionFailure());
+        assertEquals(State.OPEN, health.getState());
+        assertFalse(health.allowRequest());
+        assertEquals(3, health.getConsecutiveFailures());
+    }
+
+    public void testSuccessResetsFailures() throws Exception {
+        RundeckHealthTracker health = new RundeckHealthTracker(2, 60000);
+        health.recordFailure(connectionFailure());
+        health.recordSuccess();
+        health.recordFailure(connectionFailure());
+        assertEquals(State.CLOSED, health.getState());
+    }
+
+    public void testApiErrorsProveRundeckIsAlive() throws Exception {
+        RundeckHealthTracker health = new RundeckHealthTracker(1, 60000);
+        health.recordFailure(new RundeckApiException("No such job"));
+        assertEquals(State.CLOSED, health.getState());
+        assertEquals(0, health.getConsecutiveFailures());
+    }
+
+    public void testHalfOpenProbe() throws Exception {
+        RundeckHealthTracker health = new RundeckHealthTracker(1, 10);
+        health.recordFailure(connectionFailure());
+        assertFalse(health.allowRequest());
+        Thread.sleep(20);
+
+        // only one probe is let through
+        assertTrue(health.allowRequest());
+        assertEquals(State.HALF_OPEN, health.getState());
+        assertFalse(health.allowRequest());
+
+        // a failed probe opens the circuit again
+        health.recordFailure(connectionFailure());
+        assertEquals(State.OPEN, health.getState());
+        Thread.sleep(20);
+
+        // a successful probe closes it
+        assertTrue(health.allowRequest());
+        health.recordSuccess();
+        assertEquals(State.CLOSED, health.getState());
+        assertTrue(health.allowRequest());
+    }
+
+    private RundeckApiException connectionFailure() {
+        return new RundeckApiException("Failed to execute an HTTP GET", new IOException("Connection refused"));
+    }
+
+}
@@ -0,0 +1,60 @@
+package org.jenkinsci.plugins.rundeck;
+
+import junit.framework.TestCase;
+import org.rundeck.api.domain.RundeckJob;
+
+/**
+ * Tests for {@link RundeckJobCache}
+ */
+public class RundeckJobCacheTest extends TestCase {
+
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        RundeckJobCache cache = new RundeckJobCache(60000, 2);
+        cache.put("a", RundeckTestUtils.createJob("1", "project", null, "a"));
+        cache.put("b", RundeckTestUtils.createJob("2", "project", null, "b"));
+        assertNotNull(cache.get("a"));
+        cache.put("c", RundeckTestUtils.createJob("3", "project", null, "c"));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    public void testExpiredEntriesAreIgnored() throws Exception {
+        RundeckJobCache cache = new RundeckJobCache(1, 10);
+        cache.put("a", RundeckTestUtils.createJob("1", "project", null, "a"));
+        Thread.sleep(10);
+
+        assertNull(cache.get("a"));
+    }
+
+    public void testExpiredEntriesAreServedWhileRefreshing() throws Exception {
+        RundeckJobCache cache = new RundeckJobCache(1, 10);
+        cache.put("a", RundeckTestUtils.createJob("1", "project", null, "a"));
+        Thread.sleep(10);
+
+        assertEquals("a", cache.getOrRefreshAsync("a", null).getName());
+        assertNull(cache.getOrRefreshAsync("unknown", null));
+    }
+
+    public void testInvalidateRemovesAllTheEntriesOfTheJob() {
+        RundeckJobCache cache = new RundeckJobCache();
+        cache.put("project:group/old-name", RundeckTestUtils.createJob("1", "project", "group", "old-name"));
+        cache.put("1", RundeckTestUtils.createJob("1", "project", "group", "old-name"));
+        cache.put("project:group/new-name", null);
+        cache.put("other", RundeckTestUtils.createJob("2", "project", null, "other"));
+
+        cache.invalidate(RundeckTestUtils.createJob("1", "project", "group", "new-name"));
+
+        // resolved again through the API, and not from the given job
+        assertNull(cache.get("project:group/old-name"));
+        assertNull(cache.get("project:group/new-name"));
+        assertNull(cache.get("1"));
+        assertEquals(1, cache.getSize());
+        assertNotNull(cache.get("other"));
+
+        cache.invalidate((RundeckJob) null);
+        cache.invalidate(RundeckTestUtils.createJob(null, null, null, "other"));
+        assertEquals(1, cache.getSize());
+    }
+}
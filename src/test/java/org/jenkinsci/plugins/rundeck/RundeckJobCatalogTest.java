@@ -0,0 +1,129 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.domain.RundeckProject;
+
+/**
+ * Tests for {@link RundeckJobCatalog}
+ */
+public class RundeckJobCatalogTest extends TestCase {
+
+    private RundeckJobCatalog catalog;
+
+    private MockRundeckClient rundeck;
+
+    @Override
+    protected void setUp() throws Exception {
+        catalog = new RundeckJobCatalog();
+        rundeck = new MockRundeckClient();
+        rundeck.jobs.put("project", Arrays.asList(RundeckTestUtils.createJob("1", null, "group", "first"),
+                                                  RundeckTestUtils.createJob("2", null, null, "second")));
+        rundeck.jobs.put("other", Arrays.asList(RundeckTestUtils.createJob("3", "other", null, "third")));
+    }
+
+    public void testRefresh() throws Exception {
+        assertFalse(catalog.isLoaded());
+        assertNull(catalog.find("1"));
+
+        catalog.refresh(rundeck);
+
+        assertTrue(catalog.isLoaded());
+        assertEquals(3, catalog.getSize());
+        assertEquals("first", catalog.find("1").getName());
+        assertEquals("first", catalog.find("project:group/first").getName());
+        assertEquals("project", catalog.find("2").getProject());
+        assertEquals("third", catalog.find("other:third").getName());
+        assertNull(catalog.find("project:unknown"));
+        assertNull(catalog.find(""));
+    }
+
+    public void testRefreshFailureLeavesTheCatalogUntouched() throws Exception {
+        catalog.refresh(rundeck);
+        long lastRefresh = catalog.getLastRefresh();
+
+        rundeck.failure = new RundeckApiException("Rundeck is not available");
+        try {
+            catalog.refresh(rundeck);
+            fail("should have thrown an exception");
+        } catch (RundeckApiException e) {
+            // expected
+        }
+        assertEquals(3, catalog.getSize());
+        assertEquals(lastRefresh, catalog.getLastRefresh());
+    }
+
+    public void testClearDuringRefresh() throws Exception {
+        catalog.refresh(rundeck);
+
+        rundeck.duringRefresh = new Runnable() {
+
+            public void run() {
+                catalog.clear();
+            }
+        };
+        catalog.refresh(rundeck);
+
+        assertFalse(catalog.isLoaded());
+        assertEquals(0, catalog.getSize());
+        assertNull(catalog.find("1"));
+    }
+
+    /**
+     * Mock {@link RundeckClient} listing the given jobs
+     */
+    private static class MockRundeckClient extends RundeckClient {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, List<RundeckJob>> jobs = new LinkedHashMap<String, List<RundeckJob>>();
+
+        private RundeckApiException failure;
+
+        private Runnable duringRefresh;
+
+        public MockRundeckClient() {
+            super("http://localhost:4440", "admin", "admin");
+        }
+
+        @Override
+        public List<RundeckProject> getProjects() {
+            List<RundeckProject> projects = new ArrayList<RundeckProject>();
+            for (String name : jobs.keySet()) {
+                RundeckProject project = new RundeckProject();
+                project.setName(name);
+                projects.add(project);
+            }
+            return projects;
+        }
+
+        @Override
+        public List<RundeckJob> getJobs(String project) {
+            if (failure != null) {
+                throw failure;
+            }
+            if (duringRefresh != null) {
+                duringRefresh.run();
+                duringRefresh = null;
+            }
+            List<RundeckJob> projectJobs = new ArrayList<RundeckJob>();
+            for (RundeckJob job : jobs.get(project)) {
+                // a new instance each time, like the API
+                RundeckJob copy = new RundeckJob();
+                copy.setId(job.getId());
+                copy.setProject(job.getProject());
+                copy.setGroup(job.getGroup());
+                copy.setName(job.getName());
+                projectJobs.add(copy);
+            }
+            return projectJobs;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.util.List;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.rundeck.RundeckLogArchive.ArchiveWriter;
+
+/**
+ * Tests for {@link RundeckLogArchive}
+ */
+public class RundeckLogArchiveTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("rundeck-log-archive", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    public void testWriteAndPage() throws Exception {
+        RundeckLogArchive archive = new RundeckLogArchive(directory, 42L);
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        ArchiveWriter writer = archive.openWriter(new PrintStream(console, true), 2, 3);
+        for (int i = 0; i < 2500; i++) {
+            writer.println("line " + i);
+        }
+        writer.close();
+
+        assertTrue(archive.exists());
+        assertEquals(2500, archive.getLineCount());
+
+        // the console only gets the head and the tail
+        String[] consoleLines = console.toString().split("\r?\n");
+        assertEquals(6, consoleLines.length);
+        assertEquals("line 0", consoleLines[0]);
+        assertEquals("line 1", consoleLines[1]);
+        assertTrue(consoleLines[2].contains("2495 lines omitted"));
+        assertEquals("line 2499", consoleLines[5]);
+
+        // pages may span several compressed blocks
+        List<String> lines = archive.readLines(995, 10);
+        assertEquals(10, lines.size());
+        assertEquals("line 995", lines.get(0));
+        assertEquals("line 1004", lines.get(9));
+
+        lines = archive.readLines(2490, 100);
+        assertEquals(10, lines.size());
+        assertEquals("line 2499", lines.get(9));
+
+        assertTrue(archive.readLines(2500, 10).isEmpty());
+
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        archive.writeTo(all);
+        assertEquals(2500, all.toString("UTF-8").split("\n").length);
+    }
+
+    public void testMultiLineMessages() throws Exception {
+        RundeckLogArchive archive = new RundeckLogArchive(directory, 1L);
+        ArchiveWriter writer = archive.openWriter(new PrintStream(new ByteArrayOutputStream()), 0, 0);
+        writer.println("first\nsecond");
+        writer.println(null);
+        writer.close();
+
+        assertEquals(3, archive.getLineCount());
+        List<String> lines = archive.readLines(0, 10);
+        assertEquals("first", lines.get(0));
+        assertEquals("second", lines.get(1));
+        assertEquals("", lines.get(2));
+    }
+}
@@ -0,0 +1,128 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.jenkinsci.plugins.rundeck.RundeckLogTailer.LogSink;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.RundeckClient;
+import org.rundeck.api.domain.RundeckOutput;
+import org.rundeck.api.domain.RundeckOutputEntry;
+
+/**
+ * Tests for {@link RundeckLogTailer}
+ */
+public class RundeckLogTailerTest extends TestCase {
+
+    private MockRundeckClient rundeck;
+
+    private List<String> lines;
+
+    private RundeckLogTailer tailer;
+
+    @Override
+    protected void setUp() throws Exception {
+        rundeck = new MockRundeckClient();
+        lines = new ArrayList<String>();
+        tailer = new RundeckLogTailer(rundeck, 1L, new LogSink() {
+
+            public void println(String message) {
+                lines.add(message);
+            }
+        });
+    }
+
+    public void testIncrementalTail() throws Exception {
+        rundeck.outputs.add(createOutput(12, 1000L, false, "first", "second"));
+        rundeck.outputs.add(createOutput(12, 1000L, false));
+        rundeck.outputs.add(createOutput(18, 2000L, true, "third"));
+
+        assertEquals(2, tailer.tail());
+        assertEquals(0, tailer.tail());
+        assertFalse(tailer.isCompleted());
+        assertEquals(1, tailer.tail());
+        assertTrue(tailer.isCompleted());
+        assertEquals(Arrays.asList("first", "second", "third"), lines);
+
+        // resumes from the offset and last modification date returned by the previous call
+        assertEquals(Arrays.asList("0/0", "12/1000", "12/1000"), rundeck.requests);
+
+        // nothing more to fetch
+        assertEquals(0, tailer.tail());
+        assertEquals(3, rundeck.requests.size());
+    }
+
+    public void testEmptyOutput() throws Exception {
+        rundeck.outputs.add(null);
+        rundeck.outputs.add(createOutput(5, 1000L, false, "first"));
+
+        assertEquals(0, tailer.tail());
+        assertEquals(1, tailer.tail());
+        assertEquals(Arrays.asList("0/0", "0/0"), rundeck.requests);
+        assertFalse(tailer.isCompleted());
+    }
+
+    public void testResumeAfterError() throws Exception {
+        rundeck.outputs.add(createOutput(5, 1000L, false, "first"));
+        rundeck.outputs.add(new RundeckApiException("Rundeck is not available"));
+        rundeck.outputs.add(createOutput(10, 2000L, true, "second"));
+
+        assertEquals(1, tailer.tail());
+        try {
+            tailer.tail();
+            fail("should have thrown an exception");
+        } catch (RundeckApiException e) {
+            // expected
+        }
+        assertEquals(1, tailer.tail());
+        assertTrue(tailer.isCompleted());
+        assertEquals(Arrays.asList("first", "second"), lines);
+
+        // the failed call did not move the offset
+        assertEquals(Arrays.asList("0/0", "5/1000", "5/1000"), rundeck.requests);
+    }
+
+    private RundeckOutput createOutput(int offset, Long lastModified, boolean completed, String... messages) {
+        List<RundeckOutputEntry> entries = new ArrayList<RundeckOutputEntry>();
+        for (String message : messages) {
+            RundeckOutputEntry entry = new RundeckOutputEntry();
+            entry.setMessage(message);
+            entries.add(entry);
+        }
+        RundeckOutput output = new RundeckOutput();
+        output.setLogEntries(entries);
+        output.setOffset(offset);
+        output.setLastModified(lastModified);
+        output.setExecCompleted(completed);
+        output.setCompleted(completed);
+        return output;
+    }
+
+    /**
+     * Mock {@link RundeckClient} returning (or throwing) the given outputs in order
+     */
+    private static class MockRundeckClient extends RundeckClient {
+
+        private static final long serialVersionUID = 1L;
+
+        private final LinkedList<Object> outputs = new LinkedList<Object>();
+
+        private final List<String> requests = new ArrayList<String>();
+
+        public MockRundeckClient() {
+            super("http://localhost:4440", "admin", "admin");
+        }
+
+        @Override
+        public RundeckOutput getJobExecutionOutput(Long executionId, int offset, int lastLines, long lastModified) {
+            requests.add(offset + "/" + lastModified);
+            Object output = outputs.removeFirst();
+            if (output instanceof RundeckApiException) {
+                throw (RundeckApiException) output;
+            }
+            return (RundeckOutput) output;
+        }
+    }
+}
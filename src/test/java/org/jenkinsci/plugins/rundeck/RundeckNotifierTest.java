@@ -253,6 +253,42 @@ public class RundeckNotifierTest extends HudsonTestCase {
         assertTrue(s.contains("Rundeck execution #1 finished in 3 minutes 27 seconds, with status : SUCCEEDED"));
     }
 
+    public void testWaitForRundeckJobInBackground() throws Exception {
+        RundeckNotifier notifier = new RundeckNotifier("1", createOptions(), null, "", true, true, false, true);
+        notifier.getDescriptor().setRundeckInstance(new MockRundeckClient() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public RundeckExecution getExecution(Long executionId) {
+                RundeckExecution execution = super.getExecution(executionId);
+                execution.setStatus(ExecutionStatus.FAILED);
+                return execution;
+            }
+
+        });
+
+        FreeStyleProject project = createFreeStyleProject();
+        project.getBuildersList().add(new MockBuilder(Result.SUCCESS));
+        project.getPublishersList().add(notifier);
+        project.setScm(createScm());
+
+        // the build does not wait for the execution
+        FreeStyleBuild build = assertBuildStatusSuccess(project.scheduleBuild2(0).get());
+        String s = FileUtils.readFileToString(build.getLogFile());
+        assertTrue(s.contains("Notification succeeded !"));
+        assertTrue(s.contains("Waiting for Rundeck execution #1 to finish in the background..."));
+
+        // and the result of the execution is reported once it is finished, without changing the completed build
+        RundeckExecutionBuildBadgeAction badge = build.getAction(RundeckExecutionBuildBadgeAction.class);
+        for (int i = 0; i < 100 && build.getDescription() == null; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(ExecutionStatus.FAILED, badge.getExecutionStatus());
+        assertEquals("Rundeck execution #1 : FAILED", build.getDescription());
+        assertEquals(Result.SUCCESS, build.getResult());
+    }
+
     private String createOptions() {
         Properties options = new Properties();
         options.setProperty("option1", "value 1");
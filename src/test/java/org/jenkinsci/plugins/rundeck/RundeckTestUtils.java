@@ -0,0 +1,53 @@
+package org.jenkinsci.plugins.rundeck;
+
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.domain.RundeckJob;
+
+/**
+ * Builds the Rundeck objects used by the tests
+ */
+public final class RundeckTestUtils {
+
+    private RundeckTestUtils() {
+    }
+
+    /**
+     * @param id UUID of the job - may be null
+     * @param project name of the Rundeck project - may be null
+     * @param group path of the group - may be null
+     * @param name of the job - may be null
+     * @return a new {@link RundeckJob}
+     */
+    public static RundeckJob createJob(String id, String project, String group, String name) {
+        RundeckJob job = new RundeckJob();
+        job.setId(id);
+        job.setProject(project);
+        job.setGroup(group);
+        job.setName(name);
+        return job;
+    }
+
+    /**
+     * @param id of the execution - may be null
+     * @param status of the execution - may be null
+     * @return a new {@link RundeckExecution}, without job
+     */
+    public static RundeckExecution createExecution(Long id, ExecutionStatus status) {
+        return createExecution(id, status, null);
+    }
+
+    /**
+     * @param id of the execution - may be null
+     * @param status of the execution - may be null
+     * @param job of the execution - may be null
+     * @return a new {@link RundeckExecution}
+     */
+    public static RundeckExecution createExecution(Long id, ExecutionStatus status, RundeckJob job) {
+        RundeckExecution execution = new RundeckExecution();
+        execution.setId(id);
+        execution.setStatus(status);
+        execution.setJob(job);
+        return execution;
+    }
+}
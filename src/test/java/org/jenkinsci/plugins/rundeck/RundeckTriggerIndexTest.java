@@ -0,0 +1,83 @@
+package org.jenkinsci.plugins.rundeck;
+
+import hudson.model.FreeStyleProject;
+import java.util.Arrays;
+import java.util.Collection;
+import org.jvnet.hudson.test.HudsonTestCase;
+
+/**
+ * Test the {@link RundeckTriggerIndex}
+ */
+public class RundeckTriggerIndexTest extends HudsonTestCase {
+
+    public void testFindTriggers() throws Exception {
+        RundeckTriggerIndex index = new RundeckTriggerIndex();
+        RundeckTrigger byId = new RundeckTrigger(true, Arrays.asList("1"), null);
+        RundeckTrigger byReference = new RundeckTrigger(true, Arrays.asList("Project:group/Name"), null);
+        RundeckTrigger unfiltered = new RundeckTrigger(false, null, null);
+        index.register(createFreeStyleProject(), byId);
+        index.register(createFreeStyleProject(), byReference);
+        index.register(createFreeStyleProject(), unfiltered);
+
+        Collection<RundeckTrigger> triggers = index.findTriggers(RundeckTestUtils.createJob("1",
+                                                                                            "project",
+                                                                                            "group",
+                                                                                            "name"));
+        assertEquals(3, triggers.size());
+
+        triggers = index.findTriggers(RundeckTestUtils.createJob("2", "project", "group", "name"));
+        assertEquals(2, triggers.size());
+        assertTrue(triggers.contains(byReference));
+        assertTrue(triggers.contains(unfiltered));
+
+        triggers = index.findTriggers(RundeckTestUtils.createJob("3", "other", null, "name"));
+        assertEquals(1, triggers.size());
+        assertTrue(triggers.contains(unfiltered));
+    }
+
+    public void testWildcards() throws Exception {
+        RundeckTriggerIndex index = new RundeckTriggerIndex();
+        FreeStyleProject project = createFreeStyleProject();
+        RundeckTrigger trigger = new RundeckTrigger(true, Arrays.asList("project:deploy/*"), null);
+        index.register(project, trigger);
+
+        assertTrue(index.findTriggers(RundeckTestUtils.createJob("1", "project", "deploy/prod", "name"))
+                        .contains(trigger));
+        assertTrue(index.findTriggers(RundeckTestUtils.createJob("1", "project", "build", "name")).isEmpty());
+
+        index.unregister(project);
+        assertTrue(index.findTriggers(RundeckTestUtils.createJob("1", "project", "deploy/prod", "name")).isEmpty());
+    }
+
+    public void testReplaceAndUnregister() throws Exception {
+        RundeckTriggerIndex index = new RundeckTriggerIndex();
+        FreeStyleProject project = createFreeStyleProject();
+        RundeckTrigger oldTrigger = new RundeckTrigger(true, Arrays.asList("1"), null);
+        RundeckTrigger newTrigger = new RundeckTrigger(true, Arrays.asList("2"), null);
+        index.register(project, oldTrigger);
+        index.register(project, newTrigger);
+        assertEquals(1, index.getSize());
+        assertTrue(index.findTriggers(RundeckTestUtils.createJob("1", "project", null, "name")).isEmpty());
+
+        // stopping the old trigger should not remove the new one
+        index.unregister(project, oldTrigger);
+        assertEquals(1, index.findTriggers(RundeckTestUtils.createJob("2", "project", null, "name")).size());
+
+        index.unregister(project);
+        assertEquals(0, index.getSize());
+        assertTrue(index.findTriggers(RundeckTestUtils.createJob("2", "project", null, "name")).isEmpty());
+    }
+
+    public void testDeletedProjectIsUnregistered() throws Exception {
+        RundeckTriggerIndex index = hudson.getDescriptorByType(RundeckTrigger.RundeckDescriptor.class).getIndex();
+        FreeStyleProject project = createFreeStyleProject();
+        RundeckTrigger trigger = new RundeckTrigger(false, null, null);
+        project.addTrigger(trigger);
+        trigger.start(project, true);
+        assertEquals(1, index.getSize());
+
+        project.delete();
+        assertEquals(0, index.getSize());
+    }
+
+}
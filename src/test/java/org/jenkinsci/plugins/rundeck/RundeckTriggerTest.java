@@ -0,0 +1,85 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.domain.RundeckJob;
+
+/**
+ * Test the {@link RundeckTrigger}
+ */
+public class RundeckTriggerTest extends TestCase {
+
+    private final RundeckJob name = RundeckTestUtils.createJob("1", "project", null, "name");
+
+    private final RundeckJob other = RundeckTestUtils.createJob("2", "project", null, "other");
+
+    public void testEachExecutionSchedulesABuildByDefault() {
+        MockRundeckTrigger trigger = new MockRundeckTrigger(false);
+        trigger.onNotifications(Arrays.asList(createExecution(1L, name),
+                                              createExecution(2L, name),
+                                              createExecution(3L, other)));
+
+        assertEquals(Arrays.asList(1L, 2L, 3L), trigger.scheduled);
+    }
+
+    public void testCoalesceExecutionsOfTheSameJob() {
+        MockRundeckTrigger trigger = new MockRundeckTrigger(true);
+        trigger.onNotifications(Arrays.asList(createExecution(2L, name),
+                                              createExecution(3L, other),
+                                              createExecution(1L, name),
+                                              createExecution(5L, other)));
+
+        // the latest execution of each job, in the order of the first execution of each job
+        assertEquals(Arrays.asList(2L, 5L), trigger.scheduled);
+    }
+
+    public void testCoalesceExecutionsWithoutJobId() {
+        RundeckJob byReference = RundeckTestUtils.createJob(null, "project", "group", "name");
+        RundeckJob otherByReference = RundeckTestUtils.createJob(null, "project", "group", "other");
+        RundeckJob unknown = RundeckTestUtils.createJob(null, null, null, null);
+        MockRundeckTrigger trigger = new MockRundeckTrigger(true);
+        trigger.onNotifications(Arrays.asList(createExecution(1L, byReference),
+                                              createExecution(2L, otherByReference),
+                                              createExecution(3L, byReference),
+                                              createExecution(4L, unknown),
+                                              createExecution(5L, unknown),
+                                              createExecution(6L, null),
+                                              createExecution(7L, null)));
+
+        // coalesced by reference, never when we can't identify the job
+        assertEquals(Arrays.asList(3L, 2L, 4L, 5L, 6L, 7L), trigger.scheduled);
+    }
+
+    public void testFilteredExecutionsAreNotCoalesced() {
+        MockRundeckTrigger trigger = new MockRundeckTrigger(true);
+        trigger.onNotifications(Arrays.asList(createExecution(1L, name),
+                                              RundeckTestUtils.createExecution(2L, ExecutionStatus.FAILED, name)));
+
+        assertEquals(Arrays.asList(1L), trigger.scheduled);
+    }
+
+    private RundeckExecution createExecution(Long id, RundeckJob job) {
+        return RundeckTestUtils.createExecution(id, ExecutionStatus.SUCCEEDED, job);
+    }
+
+    /**
+     * {@link RundeckTrigger} recording the executions it schedules a build for
+     */
+    private static class MockRundeckTrigger extends RundeckTrigger {
+
+        private final List<Long> scheduled = new ArrayList<Long>();
+
+        public MockRundeckTrigger(boolean coalesceExecutions) {
+            super(false, null, null, coalesceExecutions);
+        }
+
+        @Override
+        void scheduleBuild(RundeckExecution execution) {
+            scheduled.add(execution.getId());
+        }
+    }
+}
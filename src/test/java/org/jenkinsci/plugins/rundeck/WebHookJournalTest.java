@@ -0,0 +1,137 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.jenkinsci.plugins.rundeck.WebHookJournal.Entry;
+
+/**
+ * Test the {@link WebHookJournal}
+ */
+public class WebHookJournalTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = File.createTempFile("rundeck-webhook-journal", "");
+        directory.delete();
+        directory.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    public void testUndispatchedEntriesAreReplayed() throws Exception {
+        WebHookJournal journal = new WebHookJournal(directory, WebHookJournal.DEFAULT_RETENTION);
+        long first = journal.append("first".getBytes("UTF-8"));
+        long second = journal.append("second".getBytes("UTF-8"));
+        journal.markDispatched(first);
+        journal.close();
+
+        // as after a restart
+        journal = new WebHookJournal(directory, WebHookJournal.DEFAULT_RETENTION);
+        List<Entry> entries = journal.readUndispatched();
+        assertEquals(1, entries.size());
+        assertEquals(second, entries.get(0).getSequence());
+        assertEquals("second", new String(entries.get(0).getPayload(), "UTF-8"));
+
+        // sequence numbers keep growing
+        assertTrue(journal.append("third".getBytes("UTF-8")) > second);
+        journal.close();
+    }
+
+    public void testTruncatedRecordIsIgnored() throws Exception {
+        WebHookJournal journal = new WebHookJournal(directory, WebHookJournal.DEFAULT_RETENTION);
+        journal.append("complete".getBytes("UTF-8"));
+        journal.close();
+
+        // interrupted write
+        File segment = directory.listFiles()[0];
+        FileOutputStream output = new FileOutputStream(segment, true);
+        output.write(new byte[] { 1, 0, 0, 0 });
+        output.close();
+
+        journal = new WebHookJournal(directory, WebHookJournal.DEFAULT_RETENTION);
+        List<Entry> entries = journal.readUndispatched();
+        assertEquals(1, entries.size());
+        assertEquals("complete", new String(entries.get(0).getPayload(), "UTF-8"));
+        journal.close();
+    }
+
+    public void testPayloadTooLarge() throws Exception {
+        WebHookJournal journal = new WebHookJournal(directory, WebHookJournal.DEFAULT_RETENTION);
+        long largest = journal.append(new byte[WebHookJournal.MAX_PAYLOAD_SIZE]);
+        try {
+            journal.append(new byte[WebHookJournal.MAX_PAYLOAD_SIZE + 1]);
+            fail("should have thrown an exception");
+        } catch (IOException e) {
+            // expected
+        }
+        long next = journal.append("next".getBytes("UTF-8"));
+        journal.close();
+
+        // nothing written for the refused payload
+        journal = new WebHookJournal(directory, WebHookJournal.DEFAULT_RETENTION);
+        List<Entry> entries = journal.readUndispatched();
+        assertEquals(2, entries.size());
+        assertEquals(largest, entries.get(0).getSequence());
+        assertEquals(WebHookJournal.MAX_PAYLOAD_SIZE, entries.get(0).getPayload().length);
+        assertEquals(next, entries.get(1).getSequence());
+        journal.close();
+    }
+
+    public void testReadPeriod() throws Exception {
+        WebHookJournal journal = new WebHookJournal(directory, WebHookJournal.DEFAULT_RETENTION);
+        long before = System.currentTimeMillis();
+        journal.markDispatched(journal.append("dispatched".getBytes("UTF-8")));
+        journal.append("pending".getBytes("UTF-8"));
+        long after = System.currentTimeMillis() + 1;
+
+        assertEquals(2, journal.read(before, after).size());
+        assertEquals(0, journal.read(after, after + 1000).size());
+        journal.close();
+    }
+
+    public void testCompact() throws Exception {
+        WebHookJournal journal = new WebHookJournal(directory, 0);
+        long first = journal.append("first".getBytes("UTF-8"));
+        journal.markDispatched(first);
+        journal.close();
+
+        // a new segment is started when the journal is reopened
+        journal = new WebHookJournal(directory, 0);
+        long second = journal.append("second".getBytes("UTF-8"));
+        assertEquals(2, journal.getSegmentCount());
+        Thread.sleep(5);
+
+        // the first segment is fully dispatched, the current one is never deleted
+        assertEquals(1, journal.compact());
+        assertEquals(1, journal.getSegmentCount());
+        assertEquals(second, journal.readUndispatched().get(0).getSequence());
+        journal.close();
+    }
+
+    public void testCompactOnceDispatchedFromALaterSegment() throws Exception {
+        WebHookJournal journal = new WebHookJournal(directory, 0);
+        long first = journal.append("first".getBytes("UTF-8"));
+        journal.close();
+
+        journal = new WebHookJournal(directory, 0);
+        journal.append("second".getBytes("UTF-8"));
+        Thread.sleep(5);
+        assertEquals(0, journal.compact());
+
+        // the "dispatched" record goes to the current segment
+        journal.markDispatched(first);
+        assertEquals(1, journal.compact());
+        assertEquals(1, journal.getSegmentCount());
+        journal.close();
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import org.apache.commons.io.IOUtils;
+import org.rundeck.api.parser.ExecutionParser;
+import org.rundeck.api.parser.ParserHelper;
+
+/**
+ * Compares the {@link WebHookParser} with the DOM-based parsing of the Rundeck API client, on the sample notifications
+ * of {@link WebHookParserTest}. Not run by the build : launch it with the test classpath, optionally with the number of
+ * iterations as argument.
+ */
+public class WebHookParserBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        byte[][] samples = new byte[WebHookParserTest.SAMPLES.length][];
+        for (int i = 0; i < samples.length; i++) {
+            InputStream input = WebHookParserBenchmark.class.getResourceAsStream(WebHookParserTest.SAMPLES[i]);
+            try {
+                samples[i] = IOUtils.toByteArray(input);
+            } finally {
+                IOUtils.closeQuietly(input);
+            }
+        }
+
+        // warm-up
+        runDom(samples, iterations / 10);
+        runStax(samples, iterations / 10);
+
+        long dom = runDom(samples, iterations);
+        long stax = runStax(samples, iterations);
+        System.out.println("DOM + XPath (ExecutionParser) : " + dom / iterations + " ns/notification");
+        System.out.println("StAX (WebHookParser)          : " + stax / iterations + " ns/notification");
+    }
+
+    private static long runDom(byte[][] samples, int iterations) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            byte[] sample = samples[i % samples.length];
+            new ExecutionParser("notification/executions/execution").parseXmlNode(ParserHelper.loadDocument(new ByteArrayInputStream(sample)));
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long runStax(byte[][] samples, int iterations) throws Exception {
+        WebHookParser parser = new WebHookParser();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            parser.parse(new ByteArrayInputStream(samples[i % samples.length]));
+        }
+        return System.nanoTime() - start;
+    }
+
+}
@@ -0,0 +1,110 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+import org.rundeck.api.RundeckApiException;
+import org.rundeck.api.domain.RundeckExecution;
+import org.rundeck.api.domain.RundeckExecution.ExecutionStatus;
+import org.rundeck.api.domain.RundeckJob;
+import org.rundeck.api.parser.ExecutionParser;
+import org.rundeck.api.parser.ParserHelper;
+
+/**
+ * Test the {@link WebHookParser}, against the DOM-based parser of the Rundeck API client
+ */
+public class WebHookParserTest extends TestCase {
+
+    static final String[] SAMPLES = { "webhook-succeeded.xml", "webhook-failed.xml", "webhook-aborted.xml",
+                                     "webhook-timedout.xml" };
+
+    public void testSameResultAsExecutionParser() throws Exception {
+        WebHookParser parser = new WebHookParser();
+        for (String sample : SAMPLES) {
+            RundeckExecution expected = new ExecutionParser("notification/executions/execution").parseXmlNode(ParserHelper.loadDocument(open(sample)));
+            RundeckExecution actual = parser.parse(open(sample));
+
+            assertEquals(sample, expected.getId(), actual.getId());
+            assertEquals(sample, expected.getUrl(), actual.getUrl());
+            assertEquals(sample, expected.getStatus(), actual.getStatus());
+            assertEquals(sample, expected.getStartedBy(), actual.getStartedBy());
+            assertEquals(sample, expected.getAbortedBy(), actual.getAbortedBy());
+            assertEquals(sample, expected.getStartedAt(), actual.getStartedAt());
+            assertEquals(sample, expected.getEndedAt(), actual.getEndedAt());
+            assertEquals(sample, expected.getDescription(), actual.getDescription());
+            assertEquals(sample, expected.getArgstring(), actual.getArgstring());
+            assertJobEquals(sample, expected.getJob(), actual.getJob());
+        }
+    }
+
+    public void testParseSucceeded() throws Exception {
+        RundeckExecution execution = new WebHookParser().parse(open("webhook-succeeded.xml"));
+        assertEquals(Long.valueOf(42), execution.getId());
+        assertEquals(ExecutionStatus.SUCCEEDED, execution.getStatus());
+        assertEquals("-version 1.2.3 -env prod", execution.getArgstring());
+        assertEquals("webapp:webapp/prod/deploy", execution.getJob().getProject() + ":"
+                                                   + execution.getJob().getFullName());
+        assertEquals(Long.valueOf(711), execution.getJob().getAverageDuration());
+    }
+
+    public void testParseBatch() throws Exception {
+        List<RundeckExecution> executions = new WebHookParser().parseAll(open("webhook-batch.xml"));
+        assertEquals(3, executions.size());
+        assertEquals(Long.valueOf(50), executions.get(0).getId());
+        assertEquals("-version 1.2.4", executions.get(1).getArgstring());
+        assertEquals(ExecutionStatus.FAILED, executions.get(2).getStatus());
+        assertEquals("ops", executions.get(2).getJob().getProject());
+
+        // only the first one, as ExecutionParser
+        assertEquals(Long.valueOf(50), new WebHookParser().parse(open("webhook-batch.xml")).getId());
+    }
+
+    public void testUnknownStatus() throws Exception {
+        RundeckExecution execution = new WebHookParser().parse(open("webhook-timedout.xml"));
+        assertEquals(Long.valueOf(45), execution.getId());
+        assertNull(execution.getStatus());
+        assertEquals("ops", execution.getJob().getProject());
+    }
+
+    public void testInvalidPayload() throws Exception {
+        assertInvalid("not xml");
+        assertInvalid("<notification><executions /></notification>");
+        assertInvalid("<?xml version=\"1.0\"?><!DOCTYPE notification [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>"
+                      + "<notification><executions><execution id=\"1\" status=\"succeeded\">"
+                      + "<user>&xxe;</user></execution></executions></notification>");
+    }
+
+    private void assertInvalid(String payload) {
+        try {
+            new WebHookParser().parse(new ByteArrayInputStream(payload.getBytes()));
+            fail("Should have failed for : " + payload);
+        } catch (RundeckApiException e) {
+            // expected
+        }
+    }
+
+    private void assertJobEquals(String sample, RundeckJob expected, RundeckJob actual) {
+        if (expected == null) {
+            assertNull(sample, actual);
+            return;
+        }
+        assertEquals(sample, expected.getId(), actual.getId());
+        assertEquals(sample, expected.getName(), actual.getName());
+        assertEquals(sample, expected.getGroup(), actual.getGroup());
+        assertEquals(sample, expected.getProject(), actual.getProject());
+        assertEquals(sample, expected.getDescription(), actual.getDescription());
+        assertEquals(sample, expected.getAverageDuration(), actual.getAverageDuration());
+    }
+
+    static InputStream open(String sample) throws Exception {
+        InputStream input = WebHookParserTest.class.getResourceAsStream(sample);
+        try {
+            return new ByteArrayInputStream(IOUtils.toByteArray(input));
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package org.jenkinsci.plugins.rundeck;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link WebHookQueue}
+ */
+public class WebHookQueueTest extends TestCase {
+
+    public void testDropWhenFull() throws Exception {
+        WebHookQueue queue = new WebHookQueue();
+        queue.configure(1, 2);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(3);
+        Runnable task = new Runnable() {
+
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        };
+
+        // 1 running + 2 queued
+        assertTrue(queue.offer(task));
+        assertTrue(queue.offer(task));
+        assertTrue(queue.offer(task));
+        assertFalse(queue.offer(task));
+        assertEquals(3, queue.getAccepted());
+        assertEquals(1, queue.getDropped());
+
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertTrue(queue.offer(task));
+    }
+
+    public void testFailingTaskDoesNotStopTheWorkers() throws Exception {
+        WebHookQueue queue = new WebHookQueue();
+        queue.configure(1, 10);
+        final CountDownLatch done = new CountDownLatch(1);
+        queue.offer(new Runnable() {
+
+            public void run() {
+                throw new IllegalStateException("Fake error for testing");
+            }
+        });
+        queue.offer(new Runnable() {
+
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    public void testReconfigureDoesNotDropNotifications() throws Exception {
+        final WebHookQueue queue = new WebHookQueue();
+        queue.configure(2, 10000);
+        final int count = 2000;
+        final CountDownLatch done = new CountDownLatch(count);
+        final Runnable task = new Runnable() {
+
+            public void run() {
+                done.countDown();
+            }
+        };
+        Thread producer = new Thread() {
+
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    queue.offer(task);
+                }
+            }
+        };
+        producer.start();
+        for (int i = 0; producer.isAlive(); i++) {
+            queue.configure(1 + i % 2, 10000);
+        }
+        producer.join();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(count, queue.getAccepted());
+        assertEquals(0, queue.getDropped());
+    }
+
+    public void testMaxLatency() throws Exception {
+        WebHookQueue queue = new WebHookQueue();
+        queue.configure(1, 10);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        queue.offer(new Runnable() {
+
+            public void run() {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        });
+        queue.offer(new Runnable() {
+
+            public void run() {
+                done.countDown();
+            }
+        });
+        Thread.sleep(100);
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertTrue(queue.getMaxLatency() >= 50);
+        assertTrue(queue.getAverageLatency() <= queue.getMaxLatency());
+    }
+
+    public void testShutdown() throws Exception {
+        WebHookQueue queue = new WebHookQueue();
+        queue.configure(1, 10);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        Runnable task = new Runnable() {
+
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            }
+        };
+        assertTrue(queue.offer(task));
+        assertTrue(queue.offer(task));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // waits for the running one, drops the queued one
+        queue.shutdown(5000);
+        assertEquals(1, done.getCount());
+        assertEquals(0, queue.getDepth());
+
+        // started again by the next notification
+        assertTrue(queue.offer(task));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+}